@@ -0,0 +1,105 @@
+// AnalysisCache.java
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Remembers Bedrock analyses so the same question about the same data is
+// answered without another model call. Keys hash the series content, so a
+// cached answer is reused only while the underlying numbers are unchanged.
+public class AnalysisCache {
+    private final TieredCache cache;
+    private final Gson gson;
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+    
+    public AnalysisCache() {
+        this(TieredCache.createDefault("analyses"));
+    }
+    
+    public AnalysisCache(TieredCache cache) {
+        this.cache = cache;
+        this.gson = new Gson();
+    }
+    
+    public static String key(WorldBankData data, String indicatorName, String question,
+                             String modelId, double temperature) {
+        StringBuilder canonical = new StringBuilder(256);
+        canonical.append(modelId).append('\n')
+            .append(temperature).append('\n')
+            .append(normalize(indicatorName)).append('\n')
+            .append(normalize(question)).append('\n')
+            .append(data.getCountryName()).append('\n');
+        
+        Series series = data.getSeries();
+        for (int i = 0; i < series.size(); i++) {
+            canonical.append(series.yearAt(i)).append('=');
+            if (series.isMissing(i)) {
+                canonical.append('-');
+            } else {
+                canonical.append(Double.doubleToLongBits(series.valueAt(i)));
+            }
+            canonical.append(';');
+        }
+        return TieredCache.sha256(canonical.toString());
+    }
+    
+    // Case, spacing and trailing punctuation do not change the question
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.trim().toLowerCase(Locale.ROOT)
+            .replaceAll("\\s+", " ")
+            .replaceAll("[\\s?.!]+$", "");
+    }
+    
+    public String get(String key) {
+        TieredCache.Entry entry = cache.get(key);
+        if (entry == null || !cache.isFresh(entry)) {
+            misses.incrementAndGet();
+            return null;
+        }
+        
+        JsonObject stored = gson.fromJson(
+            new String(entry.getBody(), StandardCharsets.UTF_8), JsonObject.class);
+        hits.incrementAndGet();
+        savedNanos.addAndGet(stored.get("latencyNanos").getAsLong());
+        return stored.get("analysis").getAsString();
+    }
+    
+    public void put(String key, String analysis, long latencyNanos) {
+        JsonObject stored = new JsonObject();
+        stored.addProperty("analysis", analysis);
+        stored.addProperty("latencyNanos", latencyNanos);
+        cache.put(key, new TieredCache.Entry(
+            gson.toJson(stored).getBytes(StandardCharsets.UTF_8),
+            null, null, System.currentTimeMillis()));
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+    
+    // Model latency we did not have to pay, based on how long each answer originally took
+    public long getSavedMillis() {
+        return savedNanos.get() / 1_000_000;
+    }
+    
+    public String getStats() {
+        return String.format(Locale.ROOT, "hits=%d misses=%d hitRate=%.0f%% saved=%.1fs",
+            getHits(), getMisses(), getHitRate() * 100, getSavedMillis() / 1000.0);
+    }
+}
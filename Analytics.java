@@ -0,0 +1,357 @@
+// Analytics.java
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Derived indicators computed locally over Series columns, so growth rates,
+// averages and comparisons do not need a model call. All loops run over the
+// primitive arrays directly; missing years are NaN in the value column, so
+// they either drop out of a NaN test or carry through the arithmetic, and
+// the missing bitset is never consulted per element. Results use NaN where
+// a value cannot be formed.
+public final class Analytics {
+    
+    private Analytics() {
+    }
+    
+    // Percentage change from the previous year, aligned with the series index
+    public static double[] yoyChange(Series series) {
+        int[] years = series.years();
+        double[] values = series.values();
+        double[] change = new double[years.length];
+        if (change.length > 0) {
+            change[0] = Double.NaN;
+        }
+        // A missing year on either side makes the change NaN by itself
+        for (int i = 1; i < years.length; i++) {
+            double previous = values[i - 1];
+            change[i] = years[i] - years[i - 1] == 1 && previous != 0
+                ? (values[i] - previous) / Math.abs(previous) * 100
+                : Double.NaN;
+        }
+        return change;
+    }
+    
+    // Compound annual growth between the first and last observed years, in percent
+    public static double cagr(Series series) {
+        int first = firstPresent(series);
+        int last = lastPresent(series);
+        if (first < 0 || last <= first) {
+            return Double.NaN;
+        }
+        double start = series.valueAt(first);
+        double end = series.valueAt(last);
+        int span = series.yearAt(last) - series.yearAt(first);
+        if (start <= 0 || end <= 0) {
+            return Double.NaN;
+        }
+        return (Math.pow(end / start, 1.0 / span) - 1) * 100;
+    }
+    
+    // Trailing mean over the last `window` entries, skipping missing values
+    public static double[] rollingMean(Series series, int window) {
+        double[] values = series.values();
+        int n = values.length;
+        double[] means = new double[n];
+        double sum = 0;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            double v = values[i];
+            if (!Double.isNaN(v)) {
+                sum += v;
+                count++;
+            }
+            int drop = i - window;
+            if (drop >= 0 && !Double.isNaN(values[drop])) {
+                sum -= values[drop];
+                count--;
+            }
+            means[i] = i + 1 >= window && count > 0 ? sum / count : Double.NaN;
+        }
+        return means;
+    }
+    
+    public static double[] zScores(Series series) {
+        Stats stats = stats(series);
+        double[] values = series.values();
+        double[] z = new double[values.length];
+        if (stats.stdDev == 0 || Double.isNaN(stats.stdDev)) {
+            Arrays.fill(z, Double.NaN);
+            return z;
+        }
+        for (int i = 0; i < values.length; i++) {
+            z[i] = (values[i] - stats.mean) / stats.stdDev;
+        }
+        return z;
+    }
+    
+    // Pearson correlation over the years both series have values for
+    public static double correlation(Series a, Series b) {
+        Regression fit = regression(a, b);
+        return fit.count < 2 ? Double.NaN : fit.correlation;
+    }
+    
+    // Ordinary least squares of y on x over the years both series share
+    public static Regression regression(Series x, Series y) {
+        int[] xYears = x.years();
+        int[] yYears = y.years();
+        double[] xValues = x.values();
+        double[] yValues = y.values();
+        
+        int n = 0;
+        double sumX = 0;
+        double sumY = 0;
+        double sumXX = 0;
+        double sumYY = 0;
+        double sumXY = 0;
+        int i = 0;
+        int j = 0;
+        while (i < xYears.length && j < yYears.length) {
+            if (xYears[i] < yYears[j]) {
+                i++;
+            } else if (xYears[i] > yYears[j]) {
+                j++;
+            } else {
+                double xv = xValues[i];
+                double yv = yValues[j];
+                if (!Double.isNaN(xv) && !Double.isNaN(yv)) {
+                    sumX += xv;
+                    sumY += yv;
+                    sumXX += xv * xv;
+                    sumYY += yv * yv;
+                    sumXY += xv * yv;
+                    n++;
+                }
+                i++;
+                j++;
+            }
+        }
+        
+        double covXY = n * sumXY - sumX * sumY;
+        double varX = n * sumXX - sumX * sumX;
+        double varY = n * sumYY - sumY * sumY;
+        double slope = varX == 0 ? Double.NaN : covXY / varX;
+        double intercept = n == 0 ? Double.NaN : (sumY - slope * sumX) / n;
+        double r = varX <= 0 || varY <= 0 ? Double.NaN : covXY / Math.sqrt(varX * varY);
+        return new Regression(slope, intercept, r, n);
+    }
+    
+    // Countries ordered by their value for the year, highest first; series
+    // without a value for that year are left out
+    public static List<Ranking> rank(Map<String, Series> seriesByCountry, int year) {
+        List<Ranking> rankings = new ArrayList<>(seriesByCountry.size());
+        for (Map.Entry<String, Series> entry : seriesByCountry.entrySet()) {
+            Double value = entry.getValue().valueForYear(year);
+            if (value != null) {
+                rankings.add(new Ranking(entry.getKey(), value));
+            }
+        }
+        rankings.sort(Comparator.comparingDouble((Ranking r) -> r.value).reversed());
+        for (int k = 0; k < rankings.size(); k++) {
+            rankings.get(k).rank = k + 1;
+        }
+        return rankings;
+    }
+    
+    public static Stats stats(Series series) {
+        double[] values = series.values();
+        int count = 0;
+        double sum = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < values.length; i++) {
+            double v = values[i];
+            if (!Double.isNaN(v)) {
+                sum += v;
+                min = Math.min(min, v);
+                max = Math.max(max, v);
+                count++;
+            }
+        }
+        if (count == 0) {
+            return new Stats(0, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+        }
+        
+        double mean = sum / count;
+        double squares = 0;
+        for (int i = 0; i < values.length; i++) {
+            double d = values[i] - mean;
+            if (!Double.isNaN(d)) {
+                squares += d * d;
+            }
+        }
+        return new Stats(count, mean, Math.sqrt(squares / count), min, max);
+    }
+    
+    private static int firstPresent(Series series) {
+        double[] values = series.values();
+        for (int i = 0; i < values.length; i++) {
+            if (!Double.isNaN(values[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private static int lastPresent(Series series) {
+        double[] values = series.values();
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (!Double.isNaN(values[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    // One-line-per-figure summary for display next to the raw data
+    public static String summarize(Series series) {
+        Stats stats = stats(series);
+        if (stats.count == 0) {
+            return "No observations";
+        }
+        
+        double[] yoy = yoyChange(series);
+        double[] rolling = rollingMean(series, 5);
+        int last = lastPresent(series);
+        
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "Observations: %d%n", stats.count));
+        out.append(String.format(Locale.ROOT, "Mean:         %,.4g%n", stats.mean));
+        out.append(String.format(Locale.ROOT, "Std dev:      %,.4g%n", stats.stdDev));
+        out.append(String.format(Locale.ROOT, "Min / max:    %,.4g / %,.4g%n", stats.min, stats.max));
+        out.append(String.format(Locale.ROOT, "CAGR:         %s%n", percent(cagr(series))));
+        out.append(String.format(Locale.ROOT, "Latest YoY:   %s (%d)%n",
+            percent(yoy[last]), series.yearAt(last)));
+        if (!Double.isNaN(rolling[last])) {
+            out.append(String.format(Locale.ROOT, "5-yr mean:    %,.4g%n", rolling[last]));
+        }
+        out.append(String.format(Locale.ROOT, "Latest z:     %.2f%n", zScores(series)[last]));
+        return out.toString();
+    }
+    
+    // Every series against the baseline: ranked by value in the baseline's
+    // latest observed year, with each one's correlation with the baseline
+    // and its slope when regressed on it, over the years both have values
+    public static String compare(String baseline, Map<String, Series> seriesByCountry) {
+        Series base = seriesByCountry.get(baseline);
+        int last = base == null ? -1 : lastPresent(base);
+        if (last < 0) {
+            return "No observations for " + baseline;
+        }
+        int year = base.yearAt(last);
+        
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-4s  %-28s %14s %8s %12s %6s%n",
+            "Rank", "Country", year, "r", "Slope", "Years"));
+        for (Ranking ranking : rank(seriesByCountry, year)) {
+            Regression fit = regression(base, seriesByCountry.get(ranking.country));
+            out.append(String.format(Locale.ROOT, "%4d%s %-28s %,14.4g %8s %12s %6d%n",
+                ranking.rank, ranking.country.equals(baseline) ? " *" : "  ", ranking.country,
+                ranking.value, fit.count < 2 || Double.isNaN(fit.correlation)
+                    ? "n/a" : String.format(Locale.ROOT, "%.3f", fit.correlation),
+                Double.isNaN(fit.slope) ? "n/a" : String.format(Locale.ROOT, "%,.4g", fit.slope),
+                fit.count));
+        }
+        return out.toString();
+    }
+    
+    private static String percent(double value) {
+        return Double.isNaN(value) ? "n/a" : String.format(Locale.ROOT, "%+.2f%%", value);
+    }
+    
+    public static class Stats {
+        private final int count;
+        private final double mean;
+        private final double stdDev;
+        private final double min;
+        private final double max;
+        
+        Stats(int count, double mean, double stdDev, double min, double max) {
+            this.count = count;
+            this.mean = mean;
+            this.stdDev = stdDev;
+            this.min = min;
+            this.max = max;
+        }
+        
+        public int getCount() {
+            return count;
+        }
+        
+        public double getMean() {
+            return mean;
+        }
+        
+        public double getStdDev() {
+            return stdDev;
+        }
+        
+        public double getMin() {
+            return min;
+        }
+        
+        public double getMax() {
+            return max;
+        }
+    }
+    
+    public static class Regression {
+        private final double slope;
+        private final double intercept;
+        private final double correlation;
+        private final int count;
+        
+        Regression(double slope, double intercept, double correlation, int count) {
+            this.slope = slope;
+            this.intercept = intercept;
+            this.correlation = correlation;
+            this.count = count;
+        }
+        
+        public double getSlope() {
+            return slope;
+        }
+        
+        public double getIntercept() {
+            return intercept;
+        }
+        
+        public double getCorrelation() {
+            return correlation;
+        }
+        
+        public double getRSquared() {
+            return correlation * correlation;
+        }
+        
+        public int getCount() {
+            return count;
+        }
+    }
+    
+    public static class Ranking {
+        private final String country;
+        private final double value;
+        private int rank;
+        
+        Ranking(String country, double value) {
+            this.country = country;
+            this.value = value;
+        }
+        
+        public String getCountry() {
+            return country;
+        }
+        
+        public double getValue() {
+            return value;
+        }
+        
+        public int getRank() {
+            return rank;
+        }
+    }
+}
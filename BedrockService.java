@@ -1,31 +1,99 @@
 // BedrockService.java
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
-import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClient;
+import software.amazon.awssdk.services.bedrockruntime.BedrockRuntimeAsyncClientBuilder;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelRequest;
 import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelResponse;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamRequest;
+import software.amazon.awssdk.services.bedrockruntime.model.InvokeModelWithResponseStreamResponseHandler;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class BedrockService {
-    private BedrockRuntimeClient bedrockClient;
+    static final String MODEL_ID = "anthropic.claude-v2";
+    private static final double TEMPERATURE = 0.7;
+    private static final String DEFAULT_REGIONS = "us-east-1";
+    private static final int MAX_CONNECTIONS_PER_REGION = 64;
+    private static final int DEFAULT_BATCH_PARALLELISM = 8;
+    
+    // One pooled async client per region, in failover order
+    private final List<BedrockRuntimeAsyncClient> bedrockClients = new ArrayList<>();
+    private final List<String> regions;
     private final Gson gson;
+    private final PromptBuilder promptBuilder = new PromptBuilder();
     private boolean available;
     
+    private final AnalysisCache analysisCache;
+    // Analyses currently running, so identical requests share one model call
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong regionFailovers = new AtomicLong();
+    
     public BedrockService() {
+        this(new AnalysisCache(), configuredRegions());
+    }
+    
+    public BedrockService(AnalysisCache analysisCache, List<String> regions) {
         this.gson = new Gson();
+        this.analysisCache = analysisCache;
+        this.regions = regions;
         initializeBedrock();
     }
     
+    // e.g. -Dbedrock.regions=us-east-1,us-west-2,eu-central-1
+    private static List<String> configuredRegions() {
+        String configured = System.getProperty("bedrock.regions", DEFAULT_REGIONS);
+        List<String> regions = new ArrayList<>();
+        for (String region : configured.split(",")) {
+            if (!region.trim().isEmpty()) {
+                regions.add(region.trim());
+            }
+        }
+        return regions;
+    }
+    
     private void initializeBedrock() {
         try {
-            bedrockClient = BedrockRuntimeClient.builder()
-                .region(Region.US_EAST_1)  // Change to your region
-                .credentialsProvider(DefaultCredentialsProvider.create())
-                .build();
-            available = true;
+            // e.g. -Dbedrock.endpoint=http://localhost:4566 to run against a local fake
+            String endpoint = System.getProperty("bedrock.endpoint");
+            
+            for (String region : regions) {
+                BedrockRuntimeAsyncClientBuilder builder = BedrockRuntimeAsyncClient.builder()
+                    .region(Region.of(region))
+                    .credentialsProvider(DefaultCredentialsProvider.create())
+                    .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                        .maxConcurrency(MAX_CONNECTIONS_PER_REGION)
+                        .maxPendingConnectionAcquires(10_000)
+                        .connectionAcquisitionTimeout(Duration.ofSeconds(60))
+                        .connectionMaxIdleTime(Duration.ofSeconds(60)));
+                if (endpoint != null && !endpoint.isEmpty()) {
+                    builder.endpointOverride(URI.create(endpoint));
+                }
+                bedrockClients.add(builder.build());
+            }
+            available = !bedrockClients.isEmpty();
         } catch (Exception e) {
             System.err.println("Failed to initialize Bedrock: " + e.getMessage());
             available = false;
@@ -36,52 +104,344 @@ public class BedrockService {
         return available;
     }
     
-    public String analyzeData(WorldBankData data, String question, String indicatorName) 
+    public AnalysisCache getAnalysisCache() {
+        return analysisCache;
+    }
+    
+    public long getRegionFailovers() {
+        return regionFailovers.get();
+    }
+    
+    public String analyzeData(WorldBankData data, String question, String indicatorName)
             throws Exception {
+        try {
+            return analyzeDataAsync(data, question, indicatorName).get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+    
+    public CompletableFuture<String> analyzeDataAsync(WorldBankData data, String question,
+                                                      String indicatorName) {
         if (!available) {
-            throw new RuntimeException("Bedrock service is not available");
+            return CompletableFuture.failedFuture(
+                new RuntimeException("Bedrock service is not available"));
         }
         
-        // Prepare data summary
-        StringBuilder dataSummary = new StringBuilder();
-        dataSummary.append("Country: ").append(data.getCountryName()).append("\n");
-        dataSummary.append("Indicator: ").append(indicatorName).append("\n\n");
+        // The prompt is only built if this call ends up going to the model
+        String key = AnalysisCache.key(data, indicatorName, question, MODEL_ID, TEMPERATURE);
+        return deduplicated(key, text -> { },
+            () -> invoke(requestBytes(buildPrompt(data, question, indicatorName)), 0));
+    }
+    
+    // Streams the completion: onToken receives each piece of text as the
+    // model produces it, and the future completes with the full analysis.
+    // onToken is called on an SDK thread.
+    public CompletableFuture<String> analyzeDataStreaming(WorldBankData data, String question,
+            String indicatorName, Consumer<String> onToken) {
+        if (!available) {
+            return CompletableFuture.failedFuture(
+                new RuntimeException("Bedrock service is not available"));
+        }
         
-        for (WorldBankData.DataEntry entry : data.getEntries()) {
-            if (entry.getValue() != null) {
-                dataSummary.append(entry.getYear()).append(": ")
-                    .append(entry.getValue()).append("\n");
+        // A cached or shared answer is handed over in one piece
+        String key = AnalysisCache.key(data, indicatorName, question, MODEL_ID, TEMPERATURE);
+        return deduplicated(key, onToken,
+            () -> stream(requestBytes(buildPrompt(data, question, indicatorName)), onToken, 0));
+    }
+    
+    // Runs many analyses at once, at most maxParallel model calls at a time.
+    // Futures are returned in request order.
+    public List<CompletableFuture<String>> analyzeBatch(List<AnalysisRequest> requests,
+                                                        int maxParallel) {
+        Batch batch = new Batch(requests, Math.max(1, maxParallel));
+        drain(batch);
+        return batch.results;
+    }
+    
+    public List<CompletableFuture<String>> analyzeBatch(List<AnalysisRequest> requests) {
+        return analyzeBatch(requests, DEFAULT_BATCH_PARALLELISM);
+    }
+    
+    // Starts requests while slots are free. Cache hits and failures complete
+    // at once and call back in here; the work counter turns those calls into
+    // another pass of the loop below instead of a deeper stack.
+    private void drain(Batch batch) {
+        if (batch.work.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            while (batch.slots.tryAcquire()) {
+                int index = batch.next.getAndIncrement();
+                if (index >= batch.requests.size()) {
+                    batch.slots.release();
+                    break;
+                }
+                start(batch, index);
             }
+        } while (batch.work.decrementAndGet() != 0);
+    }
+    
+    private void start(Batch batch, int index) {
+        AnalysisRequest request = batch.requests.get(index);
+        CompletableFuture<String> analysis;
+        try {
+            analysis = analyzeDataAsync(request.data, request.question, request.indicatorName);
+        } catch (RuntimeException e) {
+            // One bad request fails on its own instead of stalling the batch
+            analysis = CompletableFuture.failedFuture(e);
         }
+        analysis.whenComplete((text, error) -> {
+            if (error != null) {
+                batch.results.get(index).completeExceptionally(unwrap(error));
+            } else {
+                batch.results.get(index).complete(text);
+            }
+            batch.slots.release();
+            drain(batch);
+        });
+    }
+    
+    private static class Batch {
+        private final List<AnalysisRequest> requests;
+        private final List<CompletableFuture<String>> results = new ArrayList<>();
+        private final Semaphore slots;
+        private final AtomicInteger next = new AtomicInteger();
+        private final AtomicInteger work = new AtomicInteger();
         
-        // Create prompt
-        String prompt = String.format(
-            "\n\nHuman: I have the following World Bank data:\n\n%s\n\n" +
-            "User Question: %s\n\n" +
-            "Please provide a clear, insightful analysis based on this data.\n\n" +
-            "Assistant:",
-            dataSummary.toString(), question
-        );
+        Batch(List<AnalysisRequest> requests, int maxParallel) {
+            this.requests = requests;
+            this.slots = new Semaphore(maxParallel);
+            for (int i = 0; i < requests.size(); i++) {
+                results.add(new CompletableFuture<>());
+            }
+        }
+    }
+    
+    private CompletableFuture<String> deduplicated(String key, Consumer<String> onReuse,
+                                                   Supplier<CompletableFuture<String>> call) {
+        Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.ANALYZE);
+        String cached = analysisCache.get(key);
+        if (cached != null) {
+            onReuse.accept(cached);
+            span.end(0, "cached");
+            return CompletableFuture.completedFuture(cached);
+        }
         
-        // Create request body
-        JsonObject requestBody = new JsonObject();
-        requestBody.addProperty("prompt", prompt);
-        requestBody.addProperty("max_tokens_to_sample", 500);
-        requestBody.addProperty("temperature", 0.7);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, result);
+        if (running != null) {
+            return share(key, running, span, onReuse, call);
+        }
+        
+        long start = System.nanoTime();
+        CompletableFuture<String> invocation;
+        try {
+            invocation = call.get();
+        } catch (RuntimeException e) {
+            invocation = CompletableFuture.failedFuture(e);
+        }
         
-        // Create invoke request
+        // Cancelling aborts the model call; callers sharing it see the cancellation
+        cancelWith(result, invocation);
+        invocation.whenComplete((analysis, error) -> {
+            inFlight.remove(key, result);
+            span.end(0, error == null ? MODEL_ID
+                : error instanceof CancellationException ? "cancelled" : "failed");
+            if (error != null) {
+                result.completeExceptionally(unwrap(error));
+                return;
+            }
+            analysisCache.put(key, analysis, System.nanoTime() - start);
+            result.complete(analysis);
+        });
+        return result;
+    }
+    
+    // Waits on another caller's model call. If that caller cancels, the call
+    // is run again for this one rather than failing it with a cancellation
+    // it never asked for.
+    private CompletableFuture<String> share(String key, CompletableFuture<String> running,
+                                            Diagnostics.Span span, Consumer<String> onReuse,
+                                            Supplier<CompletableFuture<String>> call) {
+        CompletableFuture<String> shared = new CompletableFuture<>();
+        running.whenComplete((text, error) -> {
+            if (error == null) {
+                span.end(0, "shared");
+                onReuse.accept(text);
+                shared.complete(text);
+            } else if (running.isCancelled() && !shared.isDone()) {
+                span.end(0, "owner cancelled");
+                inFlight.remove(key, running);
+                forward(deduplicated(key, onReuse, call), shared);
+            } else {
+                span.end(0, "failed");
+                shared.completeExceptionally(unwrap(error));
+            }
+        });
+        return shared;
+    }
+    
+    private CompletableFuture<String> invoke(SdkBytes body, int regionIndex) {
         InvokeModelRequest invokeRequest = InvokeModelRequest.builder()
-            .modelId("anthropic.claude-v2")
-            .body(SdkBytes.fromString(gson.toJson(requestBody), StandardCharsets.UTF_8))
+            .modelId(MODEL_ID)
+            .body(body)
             .build();
         
-        // Invoke model
-        InvokeModelResponse response = bedrockClient.invokeModel(invokeRequest);
+        CompletableFuture<String> result = new CompletableFuture<>();
+        CompletableFuture<InvokeModelResponse> call = bedrockClients.get(regionIndex)
+            .invokeModel(invokeRequest);
+        cancelWith(result, call);
+        
+        call.whenComplete((response, error) -> {
+            if (error == null) {
+                try {
+                    JsonObject responseJson = gson.fromJson(
+                        response.body().asUtf8String(), JsonObject.class);
+                    result.complete(responseJson.get("completion").getAsString().trim());
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+            if (!result.isDone() && canFailOver(error, regionIndex)) {
+                regionFailovers.incrementAndGet();
+                forward(invoke(body, regionIndex + 1), result);
+                return;
+            }
+            result.completeExceptionally(unwrap(error));
+        });
+        return result;
+    }
+    
+    private CompletableFuture<String> stream(SdkBytes body, Consumer<String> onToken,
+                                             int regionIndex) {
+        InvokeModelWithResponseStreamRequest request = InvokeModelWithResponseStreamRequest.builder()
+            .modelId(MODEL_ID)
+            .contentType("application/json")
+            .accept("application/json")
+            .body(body)
+            .build();
         
-        // Parse response
-        String responseBody = response.body().asUtf8String();
-        JsonObject responseJson = gson.fromJson(responseBody, JsonObject.class);
+        StringBuilder completion = new StringBuilder();
+        AtomicBoolean started = new AtomicBoolean();
+        CompletableFuture<String> result = new CompletableFuture<>();
+        
+        InvokeModelWithResponseStreamResponseHandler handler =
+            InvokeModelWithResponseStreamResponseHandler.builder()
+                .subscriber(InvokeModelWithResponseStreamResponseHandler.Visitor.builder()
+                    .onChunk(chunk -> {
+                        JsonObject part = gson.fromJson(chunk.bytes().asUtf8String(), JsonObject.class);
+                        JsonElement text = part.get("completion");
+                        if (text != null && !text.isJsonNull()) {
+                            String token = text.getAsString();
+                            started.set(true);
+                            synchronized (completion) {
+                                completion.append(token);
+                            }
+                            onToken.accept(token);
+                        }
+                    })
+                    .build())
+                .build();
+        
+        CompletableFuture<Void> call = bedrockClients.get(regionIndex)
+            .invokeModelWithResponseStream(request, handler);
+        cancelWith(result, call);
+        
+        call.whenComplete((ignored, error) -> {
+            if (error == null) {
+                synchronized (completion) {
+                    result.complete(completion.toString().trim());
+                }
+                return;
+            }
+            // Once tokens have been shown we cannot replay from another region
+            if (!result.isDone() && !started.get() && canFailOver(error, regionIndex)) {
+                regionFailovers.incrementAndGet();
+                forward(stream(body, onToken, regionIndex + 1), result);
+                return;
+            }
+            result.completeExceptionally(unwrap(error));
+        });
+        
+        return result;
+    }
+    
+    // Cancelling the result aborts the SDK call (and its HTTP stream) behind it
+    private static void cancelWith(CompletableFuture<?> result, CompletableFuture<?> call) {
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                call.cancel(true);
+            }
+        });
+    }
+    
+    // Completes the result from a failover attempt, which is cancelled with it
+    private static void forward(CompletableFuture<String> attempt, CompletableFuture<String> result) {
+        cancelWith(result, attempt);
+        attempt.whenComplete((analysis, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(analysis);
+            }
+        });
+    }
+    
+    // Throttling and capacity errors move on to the next configured region
+    private boolean canFailOver(Throwable error, int regionIndex) {
+        if (regionIndex + 1 >= bedrockClients.size()) {
+            return false;
+        }
+        Throwable cause = unwrap(error);
+        if (cause instanceof SdkServiceException) {
+            SdkServiceException serviceError = (SdkServiceException) cause;
+            return serviceError.isThrottlingException()
+                || serviceError.statusCode() == 429
+                || serviceError.statusCode() == 503;
+        }
+        return false;
+    }
+    
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
+        }
+        return error;
+    }
+    
+    private SdkBytes requestBytes(String prompt) {
+        return SdkBytes.fromString(gson.toJson(buildRequestBody(prompt)), StandardCharsets.UTF_8);
+    }
+    
+    // Lets callers see the prompt size before anything is sent
+    public PromptBuilder.Prompt preparePrompt(WorldBankData data, String question,
+                                              String indicatorName) {
+        return promptBuilder.build(data, question, indicatorName);
+    }
+    
+    private String buildPrompt(WorldBankData data, String question, String indicatorName) {
+        return promptBuilder.build(data, question, indicatorName).getText();
+    }
+    
+    private JsonObject buildRequestBody(String prompt) {
+        JsonObject requestBody = new JsonObject();
+        requestBody.addProperty("prompt", prompt);
+        requestBody.addProperty("max_tokens_to_sample", 500);
+        requestBody.addProperty("temperature", TEMPERATURE);
+        return requestBody;
+    }
+    
+    public static class AnalysisRequest {
+        private final WorldBankData data;
+        private final String question;
+        private final String indicatorName;
         
-        return responseJson.get("completion").getAsString().trim();
+        public AnalysisRequest(WorldBankData data, String question, String indicatorName) {
+            this.data = data;
+            this.question = question;
+            this.indicatorName = indicatorName;
+        }
     }
 }
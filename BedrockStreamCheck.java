@@ -0,0 +1,169 @@
+// BedrockStreamCheck.java
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Fixture check for the streaming analysis path. FixtureServer fakes the
+// Bedrock runtime endpoint and sends its answer as one event stream frame
+// per token. The frames are first read straight off the wire, checking
+// both CRCs, the token order and that tokens arrive before the stream
+// ends. Then BedrockService is pointed at the same endpoint, and
+// analyzeDataStreaming has to hand over every token in order, before its
+// future completes, and complete with the assembled text. Exits non-zero
+// if any check fails.
+//
+// Run: java -cp <classpath> BedrockStreamCheck
+public class BedrockStreamCheck {
+    private static final String MODEL_PATH = "/model/" + BedrockService.MODEL_ID;
+    
+    private static int failures;
+    
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createTempDirectory("bedrock-check");
+        FixtureServer server = new FixtureServer(0, 0, dir);
+        server.start();
+        try {
+            checkWireFormat(server);
+            checkService(server, dir);
+        } finally {
+            server.stop();
+        }
+        
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All Bedrock streaming checks passed");
+    }
+    
+    // Raw frames, decoded as they are read
+    private static void checkWireFormat(FixtureServer server) throws Exception {
+        HttpURLConnection connection = post(server, MODEL_PATH + "/invoke-with-response-stream");
+        check("wire: status", connection.getResponseCode() == 200, connection.getResponseCode());
+        check("wire: content type", "application/vnd.amazon.eventstream".equals(connection.getContentType()),
+            connection.getContentType());
+        
+        List<String> tokens = new ArrayList<>();
+        String lastStop = null;
+        int badCrc = 0;
+        try (DataInputStream in = new DataInputStream(connection.getInputStream())) {
+            byte[] frame;
+            while ((frame = readFrame(in)) != null) {
+                ByteBuffer buffer = ByteBuffer.wrap(frame);
+                int total = buffer.getInt();
+                int headers = buffer.getInt();
+                if (buffer.getInt() != (int) FixtureServer.crc32(frame, 0, 8)
+                        || ByteBuffer.wrap(frame, total - 4, 4).getInt() != (int) FixtureServer.crc32(frame, 0, total - 4)) {
+                    badCrc++;
+                }
+                String payload = new String(frame, 12 + headers, total - 16 - headers, StandardCharsets.UTF_8);
+                JsonObject chunk = JsonParser.parseString(new String(Base64.getDecoder().decode(
+                    JsonParser.parseString(payload).getAsJsonObject().get("bytes").getAsString()),
+                    StandardCharsets.UTF_8)).getAsJsonObject();
+                tokens.add(chunk.get("completion").getAsString());
+                lastStop = chunk.get("stop_reason").isJsonNull() ? null : chunk.get("stop_reason").getAsString();
+            }
+        }
+        check("wire: frame CRCs", badCrc == 0, badCrc + " bad");
+        check("wire: tokens in order", FixtureServer.STREAM_TOKENS.equals(tokens), tokens);
+        check("wire: stop reason on last chunk", "stop_sequence".equals(lastStop), lastStop);
+        check("wire: full text", fullText().equals(String.join("", tokens).trim()), String.join("", tokens));
+    }
+    
+    private static void checkService(FixtureServer server, Path dir) throws Exception {
+        System.setProperty("bedrock.endpoint", server.getBedrockEndpoint());
+        System.setProperty("aws.accessKeyId", "fixture");
+        System.setProperty("aws.secretAccessKey", "fixture");
+        BedrockService service = new BedrockService(
+            new AnalysisCache(new TieredCache(dir.resolve("analysis"), TimeUnit.HOURS.toMillis(1),
+                1024 * 1024, 1024 * 1024)), List.of("us-east-1"));
+        check("service: available", service.isAvailable(), false);
+        if (!service.isAvailable()) {
+            return;
+        }
+        
+        WorldBankData data = new WorldBankData();
+        data.setCountryName("Germany");
+        for (int year = 2000; year <= 2010; year++) {
+            data.addEntry(year, 100.0 + year % 7);
+        }
+        
+        // Each token records whether the future had already completed
+        List<String> tokens = new ArrayList<>();
+        List<Boolean> afterCompletion = new ArrayList<>();
+        AtomicReference<CompletableFuture<String>> future = new AtomicReference<>();
+        CompletableFuture<String> streaming = service.analyzeDataStreaming(data, "Describe the trend",
+            "GDP growth (annual %)", token -> {
+                synchronized (tokens) {
+                    tokens.add(token);
+                    CompletableFuture<String> started = future.get();
+                    afterCompletion.add(started != null && started.isDone());
+                }
+            });
+        future.set(streaming);
+        String text = streaming.get(30, TimeUnit.SECONDS);
+        synchronized (tokens) {
+            check("service: tokens in order", FixtureServer.STREAM_TOKENS.equals(tokens), tokens);
+            check("service: tokens before completion", !afterCompletion.contains(true), afterCompletion);
+        }
+        check("service: streamed text", fullText().equals(text), text);
+        
+        String whole = service.analyzeDataAsync(data, "Summarise the series", "GDP growth (annual %)")
+            .get(30, TimeUnit.SECONDS);
+        check("service: invoke text", fullText().equals(whole), whole);
+    }
+    
+    private static String fullText() {
+        return String.join("", FixtureServer.STREAM_TOKENS).trim();
+    }
+    
+    // One whole message, or null at the end of the stream
+    private static byte[] readFrame(DataInputStream in) throws IOException {
+        int total;
+        try {
+            total = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] frame = new byte[total];
+        ByteBuffer.wrap(frame).putInt(total);
+        in.readFully(frame, 4, total - 4);
+        return frame;
+    }
+    
+    private static HttpURLConnection post(FixtureServer server, String path) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(server.getBedrockEndpoint() + path)
+            .openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write("{\"prompt\":\"\\n\\nHuman: hi\\n\\nAssistant:\"}".getBytes(StandardCharsets.UTF_8));
+        }
+        return connection;
+    }
+    
+    private static void check(String name, boolean passed, Object actual) {
+        if (passed) {
+            System.out.println("ok    " + name);
+        } else {
+            failures++;
+            System.out.println("FAIL  " + name + " (got " + actual + ")");
+        }
+    }
+}
@@ -0,0 +1,726 @@
+// Benchmarks.java
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.JTextArea;
+
+// Micro-benchmarks for the hot paths. Each group builds named workloads
+// (see workloads()) that two runners share: this main()-driven harness,
+// which needs nothing beyond the classpath, and the JMH classes under jmh/
+// built by the pom's bench profile. The harness does warmup iterations,
+// measured iterations, time and allocation per op, and appends each result
+// as a JSON line to -Dbench.output (default bench-results.jsonl) so runs
+// can be compared over time.
+//
+// Groups: parse series analytics paint prompt fetch
+// Recorded payloads: -Dbench.fixtures=<dir> (see FixtureServer record)
+//
+// Run: java -cp <classpath> Benchmarks [group...]
+//      mvn -Pbench package && java -jar target/benchmarks.jar
+public class Benchmarks {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+    
+    private static volatile Object blackhole;
+    private static final Gson GSON = new GsonBuilder().disableHtmlEscaping().create();
+    private static final String RUN_STARTED = Instant.now().toString();
+    
+    public static void main(String[] args) throws Exception {
+        String groups = args.length == 0 ? "parse" : String.join(",", args);
+        
+        if (groups.contains("parse")) {
+            benchmarkParse();
+        }
+        if (groups.contains("series")) {
+            benchmarkSeries();
+        }
+        if (groups.contains("analytics")) {
+            benchmarkAnalytics();
+        }
+        if (groups.contains("paint")) {
+            benchmarkPaint();
+        }
+        if (groups.contains("prompt")) {
+            benchmarkPrompt();
+        }
+        if (groups.contains("fetch")) {
+            benchmarkFetch();
+        }
+    }
+    
+    // Named operations for one group at one size. JMH refuses benchmark
+    // classes in the default package, so the JMH classes call this
+    // reflectively and only see the Map and AutoCloseable interfaces.
+    public static Workloads workloads(String group, String param) throws Exception {
+        switch (group) {
+            case "parse":
+                int rows = Integer.parseInt(param);
+                return parseWorkloads(syntheticPayload(rows), Math.max(1, 2_000_000 / rows));
+            case "series":
+                return seriesWorkloads();
+            case "analytics":
+                return analyticsWorkloads(Integer.parseInt(param));
+            case "paint":
+                return paintWorkloads(Integer.parseInt(param));
+            case "prompt":
+                return promptWorkloads(Integer.parseInt(param));
+            case "fetch":
+                return fetchWorkloads(Long.parseLong(param));
+            default:
+                throw new IllegalArgumentException("Unknown benchmark group: " + group);
+        }
+    }
+    
+    // Runs every workload through the harness as "<group>.<name><suffix>"
+    private static void runAll(String group, String suffix, Workloads workloads) throws Exception {
+        try (workloads) {
+            for (Map.Entry<String, Callable<Object>> entry : workloads.entrySet()) {
+                Callable<Object> operation = entry.getValue();
+                run(group + "." + entry.getKey() + suffix, workloads.opsPerIteration(entry.getKey()),
+                    () -> blackhole = operation.call());
+            }
+        }
+    }
+    
+    // DOM parse of the whole body versus the streaming parser
+    private static void benchmarkParse() throws Exception {
+        for (int rows : new int[] {50, 1_000, 20_000}) {
+            runAll("parse", " rows=" + rows, workloads("parse", String.valueOf(rows)));
+        }
+        
+        // Real responses saved with FixtureServer record
+        String fixtures = System.getProperty("bench.fixtures");
+        if (fixtures != null) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(fixtures), "*.json")) {
+                for (Path file : files) {
+                    byte[] payload = Files.readAllBytes(file);
+                    String label = " fixture=" + file.getFileName().toString().substring(0, 8)
+                        + " bytes=" + payload.length;
+                    runAll("parse", label, parseWorkloads(payload,
+                        Math.max(1, 200_000_000 / Math.max(1, payload.length))));
+                }
+            }
+        }
+    }
+    
+    private static Workloads parseWorkloads(byte[] payload, int opsPerIteration) {
+        Workloads workloads = new Workloads();
+        workloads.add("dom", opsPerIteration, () -> parseWithDom(payload));
+        workloads.add("streaming", opsPerIteration, () -> parseWithStreaming(payload));
+        return workloads;
+    }
+    
+    // The original fetchData/parseResponse path: readLine into a
+    // StringBuilder, build the JsonElement tree, then walk it.
+    static WorldBankData parseWithDom(byte[] payload) throws Exception {
+        BufferedReader br = new BufferedReader(
+            new InputStreamReader(new ByteArrayInputStream(payload)));
+        StringBuilder response = new StringBuilder();
+        String output;
+        while ((output = br.readLine()) != null) {
+            response.append(output);
+        }
+        
+        JsonArray jsonArray = JsonParser.parseString(response.toString()).getAsJsonArray();
+        JsonArray dataArray = jsonArray.get(1).getAsJsonArray();
+        WorldBankData worldBankData = new WorldBankData();
+        
+        for (JsonElement element : dataArray) {
+            JsonObject obj = element.getAsJsonObject();
+            worldBankData.setCountryName(obj.getAsJsonObject("country")
+                .get("value").getAsString());
+            JsonElement valueElement = obj.get("value");
+            worldBankData.addEntry(obj.get("date").getAsString(),
+                valueElement.isJsonNull() ? null : valueElement.getAsDouble());
+        }
+        
+        worldBankData.getSeries();
+        return worldBankData;
+    }
+    
+    static WorldBankData parseWithStreaming(byte[] payload) throws Exception {
+        WorldBankData worldBankData = new WorldBankData();
+        WorldBankResponseParser.parse(new ByteArrayInputStream(payload),
+            (countryCode, countryId, indicatorId, countryName, year, value) -> {
+                worldBankData.setCountryName(countryName);
+                worldBankData.addEntry(year, value);
+            });
+        
+        worldBankData.getSeries();
+        return worldBankData;
+    }
+    
+    // Boxed List<DataEntry> with String years versus the primitive Series:
+    // build + sort, year lookup, and retained heap for a bulk panel
+    private static void benchmarkSeries() throws Exception {
+        runAll("series", "", workloads("series", ""));
+        
+        int years = 64;
+        int seriesCount = 20_000;
+        System.out.printf(Locale.ROOT, "series.heap.boxed     %,d series x %d years: %,d KB retained%n",
+            seriesCount, years, retainedBytes(() -> {
+                List<List<WorldBankData.DataEntry>> panel = new ArrayList<>(seriesCount);
+                for (int s = 0; s < seriesCount; s++) {
+                    List<WorldBankData.DataEntry> entries = new ArrayList<>(years);
+                    for (int y = 0; y < years; y++) {
+                        entries.add(new WorldBankData.DataEntry(String.valueOf(2023 - y), s + y * 1.5));
+                    }
+                    panel.add(entries);
+                }
+                return panel;
+            }) / 1024);
+        System.out.printf(Locale.ROOT, "series.heap.columnar  %,d series x %d years: %,d KB retained%n",
+            seriesCount, years, retainedBytes(() -> {
+                List<Series> panel = new ArrayList<>(seriesCount);
+                for (int s = 0; s < seriesCount; s++) {
+                    Series.Builder b = new Series.Builder();
+                    for (int y = 0; y < years; y++) {
+                        b.add(2023 - y, s + y * 1.5);
+                    }
+                    panel.add(b.build());
+                }
+                return panel;
+            }) / 1024);
+    }
+    
+    private static Workloads seriesWorkloads() {
+        int years = 64;
+        int[] lookups = {1965, 1990, 2005, 2020};
+        Workloads workloads = new Workloads();
+        
+        workloads.add("build.boxed", 200, () -> {
+            List<WorldBankData.DataEntry> entries = new ArrayList<>(years);
+            for (int y = 0; y < years; y++) {
+                entries.add(new WorldBankData.DataEntry(String.valueOf(2023 - y), y * 1.5));
+            }
+            entries.sort((a, b) -> b.getYear().compareTo(a.getYear()));
+            return entries;
+        });
+        workloads.add("build.columnar", 200, () -> {
+            Series.Builder builder = new Series.Builder();
+            for (int y = 0; y < years; y++) {
+                builder.add(2023 - y, y * 1.5);
+            }
+            return builder.build();
+        });
+        
+        List<WorldBankData.DataEntry> boxed = new ArrayList<>();
+        Series.Builder builder = new Series.Builder();
+        for (int y = 0; y < years; y++) {
+            boxed.add(new WorldBankData.DataEntry(String.valueOf(2023 - y), y * 1.5));
+            builder.add(2023 - y, y * 1.5);
+        }
+        Series series = builder.build();
+        
+        workloads.add("lookup.boxed-scan", 10_000, () -> {
+            double sum = 0;
+            for (int year : lookups) {
+                String key = String.valueOf(year);
+                for (WorldBankData.DataEntry entry : boxed) {
+                    if (entry.getYear().equals(key)) {
+                        sum += entry.getValue();
+                        break;
+                    }
+                }
+            }
+            return sum;
+        });
+        workloads.add("lookup.binary-search", 10_000, () -> {
+            double sum = 0;
+            for (int year : lookups) {
+                int index = series.indexOf(year);
+                if (index >= 0) {
+                    sum += series.valueAt(index);
+                }
+            }
+            return sum;
+        });
+        return workloads;
+    }
+    
+    // Whole-panel sweeps: every country x indicator series through each
+    // derived measure. WDI has ~266 economies x ~1,500 indicators; the
+    // indicator count defaults lower so the run fits a small heap
+    // (-Dbench.indicators=1500 for the full panel).
+    private static void benchmarkAnalytics() throws Exception {
+        int indicators = Integer.getInteger("bench.indicators", 100);
+        runAll("analytics", " 266x" + indicators + "x64", workloads("analytics", String.valueOf(indicators)));
+    }
+    
+    private static Workloads analyticsWorkloads(int indicators) {
+        int countries = 266;
+        int years = 64;
+        Random random = new Random(42);
+        
+        Series[][] panel = new Series[indicators][countries];
+        for (int i = 0; i < indicators; i++) {
+            for (int c = 0; c < countries; c++) {
+                Series.Builder builder = new Series.Builder();
+                double value = 1 + random.nextDouble() * 1e3;
+                for (int y = 0; y < years; y++) {
+                    value *= 1 + (random.nextDouble() - 0.45) * 0.1;
+                    if (random.nextInt(20) == 0) {
+                        builder.addMissing(1960 + y);
+                    } else {
+                        builder.add(1960 + y, value);
+                    }
+                }
+                panel[i][c] = builder.build();
+            }
+        }
+        Workloads workloads = new Workloads();
+        
+        workloads.add("yoy", 1, () -> {
+            Object last = null;
+            for (Series[] row : panel) {
+                for (Series series : row) {
+                    last = Analytics.yoyChange(series);
+                }
+            }
+            return last;
+        });
+        workloads.add("cagr", 1, () -> {
+            double sum = 0;
+            for (Series[] row : panel) {
+                for (Series series : row) {
+                    sum += Analytics.cagr(series);
+                }
+            }
+            return sum;
+        });
+        workloads.add("rolling-mean-5", 1, () -> {
+            Object last = null;
+            for (Series[] row : panel) {
+                for (Series series : row) {
+                    last = Analytics.rollingMean(series, 5);
+                }
+            }
+            return last;
+        });
+        workloads.add("zscores", 1, () -> {
+            Object last = null;
+            for (Series[] row : panel) {
+                for (Series series : row) {
+                    last = Analytics.zScores(series);
+                }
+            }
+            return last;
+        });
+        // Each indicator against the next one, per country
+        workloads.add("regression", 1, () -> {
+            double sum = 0;
+            for (int i = 0; i + 1 < indicators; i++) {
+                for (int c = 0; c < countries; c++) {
+                    sum += Analytics.regression(panel[i][c], panel[i + 1][c]).getSlope();
+                }
+            }
+            return sum;
+        });
+        
+        List<Map<String, Series>> byIndicator = new ArrayList<>();
+        for (Series[] row : panel) {
+            Map<String, Series> countriesMap = new HashMap<>();
+            for (int c = 0; c < countries; c++) {
+                countriesMap.put("C" + c, row[c]);
+            }
+            byIndicator.add(countriesMap);
+        }
+        workloads.add("rank-2020", 1, () -> {
+            Object last = null;
+            for (Map<String, Series> countriesMap : byIndicator) {
+                last = Analytics.rank(countriesMap, 2020);
+            }
+            return last;
+        });
+        
+        // Same YoY sweep through the boxed newest-first entry view
+        List<WorldBankData> boxed = new ArrayList<>();
+        for (Series[] row : panel) {
+            for (Series series : row) {
+                WorldBankData data = new WorldBankData();
+                for (int k = 0; k < series.size(); k++) {
+                    data.addEntry(series.yearAt(k), series.isMissing(k) ? null : series.valueAt(k));
+                }
+                boxed.add(data);
+            }
+        }
+        workloads.add("yoy.boxed-entries", 1, () -> {
+            Object last = null;
+            for (WorldBankData data : boxed) {
+                List<WorldBankData.DataEntry> entries = data.getEntries();
+                double[] change = new double[entries.size()];
+                for (int k = 0; k + 1 < entries.size(); k++) {
+                    Double current = entries.get(k).getValue();
+                    Double previous = entries.get(k + 1).getValue();
+                    change[k] = current == null || previous == null || previous == 0
+                        ? Double.NaN : (current - previous) / Math.abs(previous) * 100;
+                }
+                last = change;
+            }
+            return last;
+        });
+        return workloads;
+    }
+    
+    // Off-screen paint of the results view: the old append-per-row text area
+    // versus the table and chart, which only touch what is visible
+    private static void benchmarkPaint() throws Exception {
+        for (int rows : new int[] {1_000, 50_000, 1_000_000}) {
+            runAll("paint", " rows=" + rows, workloads("paint", String.valueOf(rows)));
+        }
+    }
+    
+    private static Workloads paintWorkloads(int rows) {
+        System.setProperty("java.awt.headless", "true");
+        BufferedImage image = new BufferedImage(800, 400, BufferedImage.TYPE_INT_RGB);
+        
+        Series.Builder builder = new Series.Builder();
+        Random random = new Random(42);
+        double value = 1e9;
+        for (int i = 0; i < rows; i++) {
+            value *= 1 + (random.nextDouble() - 0.48) * 0.05;
+            builder.add(i, value);
+        }
+        Series series = builder.build();
+        int ops = Math.max(1, 100_000 / rows);
+        Workloads workloads = new Workloads();
+        
+        if (rows <= 50_000) {
+            workloads.add("textarea.fill+paint", ops, () -> {
+                JTextArea area = new JTextArea();
+                for (int i = series.size() - 1; i >= 0; i--) {
+                    area.append(series.yearAt(i) + ": "
+                        + String.format("$%.2f billion", series.valueAt(i) / 1e9) + "\n");
+                }
+                area.setSize(800, 400);
+                paint(area, image);
+                return image;
+            });
+        }
+        
+        SeriesTableModel model = new SeriesTableModel();
+        JTable table = new JTable(model);
+        table.setSize(800, 400);
+        workloads.add("table.fill+paint", ops, () -> {
+            model.setSeries("United Kingdom", series, "GDP (current US$)");
+            paint(table, image);
+            return image;
+        });
+        
+        SeriesChart chart = new SeriesChart();
+        chart.setSize(800, 400);
+        chart.setSeries(series);
+        workloads.add("chart.decimated", ops, () -> {
+            paint(chart, image);
+            return image;
+        });
+        workloads.add("chart.polyline", ops, () -> {
+            paintPolyline(series, image);
+            return image;
+        });
+        return workloads;
+    }
+    
+    private static void paint(JComponent component, BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.setClip(0, 0, image.getWidth(), image.getHeight());
+        component.paint(g);
+        g.dispose();
+    }
+    
+    // Baseline: every point as one polyline vertex
+    private static void paintPolyline(Series series, BufferedImage image) {
+        int n = series.size();
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        double span = Math.max(1, series.yearAt(n - 1) - series.yearAt(0));
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            min = Math.min(min, series.valueAt(i));
+            max = Math.max(max, series.valueAt(i));
+        }
+        for (int i = 0; i < n; i++) {
+            xs[i] = (int) ((series.yearAt(i) - series.yearAt(0)) * (image.getWidth() - 1) / span);
+            ys[i] = (int) ((max - series.valueAt(i)) * (image.getHeight() - 1) / (max - min));
+        }
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.drawPolyline(xs, ys, n);
+        g.dispose();
+    }
+    
+    // Prompt assembly: the original one-line-per-entry prompt versus the
+    // token-budgeted PromptBuilder
+    private static void benchmarkPrompt() throws Exception {
+        PromptBuilder builder = new PromptBuilder();
+        for (int years : new int[] {20, 64, 5_000}) {
+            runAll("prompt", " years=" + years, workloads("prompt", String.valueOf(years)));
+            
+            WorldBankData data = promptData(years);
+            System.out.printf(Locale.ROOT, "prompt.tokens years=%d: legacy ~%d, builder ~%d%n", years,
+                PromptBuilder.estimateTokens(buildPromptLegacy(data, "How has this changed?",
+                    "GDP (current US$)")),
+                builder.build(data, "How has this changed?", "GDP (current US$)").getEstimatedTokens());
+        }
+    }
+    
+    private static Workloads promptWorkloads(int years) {
+        PromptBuilder builder = new PromptBuilder();
+        WorldBankData data = promptData(years);
+        int ops = Math.max(1, 200_000 / years);
+        Workloads workloads = new Workloads();
+        workloads.add("legacy", ops,
+            () -> buildPromptLegacy(data, "How has this changed?", "GDP (current US$)"));
+        workloads.add("builder", ops,
+            () -> builder.build(data, "How has this changed?", "GDP (current US$)"));
+        return workloads;
+    }
+    
+    private static WorldBankData promptData(int years) {
+        WorldBankData data = new WorldBankData();
+        data.setCountryName("United Kingdom");
+        Random random = new Random(42);
+        for (int y = 0; y < years; y++) {
+            data.addEntry(2023 - y, random.nextDouble() * 3e12);
+        }
+        data.getSeries();
+        return data;
+    }
+    
+    static String buildPromptLegacy(WorldBankData data, String question, String indicatorName) {
+        StringBuilder dataSummary = new StringBuilder();
+        dataSummary.append("Country: ").append(data.getCountryName()).append("\n");
+        dataSummary.append("Indicator: ").append(indicatorName).append("\n\n");
+        for (WorldBankData.DataEntry entry : data.getEntries()) {
+            if (entry.getValue() != null) {
+                dataSummary.append(entry.getYear()).append(": ")
+                    .append(entry.getValue()).append("\n");
+            }
+        }
+        return String.format(
+            "\n\nHuman: I have the following World Bank data:\n\n%s\n\n" +
+            "User Question: %s\n\n" +
+            "Please provide a clear, insightful analysis based on this data.\n\n" +
+            "Assistant:",
+            dataSummary.toString(), question
+        );
+    }
+    
+    // End to end through WorldBankAPI against a local FixtureServer with
+    // -Dbench.latencyMs of simulated network latency (default 20). "cold"
+    // uses a fresh API and cache per op; "warm" reuses one API, so repeats
+    // are served from the series store.
+    private static void benchmarkFetch() throws Exception {
+        long latency = Long.getLong("bench.latencyMs", 20);
+        runAll("fetch", " latency=" + latency + "ms", workloads("fetch", String.valueOf(latency)));
+    }
+    
+    private static Workloads fetchWorkloads(long latency) throws Exception {
+        String fixtures = System.getProperty("bench.fixtures");
+        FixtureServer server = new FixtureServer(0, latency,
+            fixtures == null ? null : Paths.get(fixtures));
+        server.start();
+        Workloads workloads = new Workloads();
+        workloads.onClose(() -> {
+            System.out.printf(Locale.ROOT, "fetch: %,d requests served%n", server.getRequests());
+            server.stop();
+        });
+        
+        FetchEngine engine = new FetchEngine();
+        Path cacheRoot = Files.createTempDirectory("bench-cache");
+        AtomicInteger cacheNumber = new AtomicInteger();
+        Supplier<WorldBankAPI> coldApi = () -> new WorldBankAPI(
+            new TieredCache(cacheRoot.resolve(String.valueOf(cacheNumber.incrementAndGet())),
+                TimeUnit.DAYS.toMillis(1), 16L << 20, 64L << 20),
+            engine, server.getApiRoot());
+        
+        List<String> countries = new ArrayList<>();
+        for (int c = 0; c < 20; c++) {
+            countries.add(String.format(Locale.ROOT, "C%02d", c));
+        }
+        List<String> indicators = List.of("NY.GDP.MKTP.CD", "SP.POP.TOTL", "FP.CPI.TOTL.ZG",
+            "SL.UEM.TOTL.ZS", "NY.GDP.PCAP.CD");
+        
+        workloads.add("single.cold", 2,
+            () -> coldApi.get().fetchData("GBR", "NY.GDP.MKTP.CD", 1960, 2023));
+        workloads.add("batch-20x5.cold", 1,
+            () -> coldApi.get().fetchBatch(countries, indicators, 1960, 2023));
+        
+        WorldBankAPI warm = coldApi.get();
+        warm.fetchBatch(countries, indicators, 1960, 2023);
+        workloads.add("batch-20x5.warm", 20,
+            () -> warm.fetchBatch(countries, indicators, 2000, 2020));
+        return workloads;
+    }
+    
+    interface Allocation {
+        Object allocate();
+    }
+    
+    // Approximate heap kept alive by the returned object graph
+    static long retainedBytes(Allocation allocation) throws InterruptedException {
+        long before = usedHeapAfterGc();
+        Object retained = allocation.allocate();
+        long after = usedHeapAfterGc();
+        blackhole = retained;
+        return after - before;
+    }
+    
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    // A response in the v2 JSON shape with the given number of rows
+    static byte[] syntheticPayload(int rows) {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder(rows * 260);
+        json.append("[{\"page\":1,\"pages\":1,\"per_page\":").append(rows)
+            .append(",\"total\":").append(rows)
+            .append(",\"sourceid\":\"2\",\"lastupdated\":\"2025-07-01\"},[");
+        
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            int year = 2023 - (i % 64);
+            json.append("{\"indicator\":{\"id\":\"NY.GDP.MKTP.CD\",\"value\":\"GDP (current US$)\"},")
+                .append("\"country\":{\"id\":\"GB\",\"value\":\"United Kingdom\"},")
+                .append("\"countryiso3code\":\"GBR\",\"date\":\"").append(year).append("\",")
+                .append("\"value\":");
+            if (i % 17 == 0) {
+                json.append("null");
+            } else {
+                json.append(String.format(Locale.ROOT, "%.1f", random.nextDouble() * 3e12));
+            }
+            json.append(",\"unit\":\"\",\"obs_status\":\"\",\"decimal\":0}");
+        }
+        json.append("]]");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // Operations in insertion order, each with the harness's ops per
+    // iteration, plus whatever has to be released when the group is done
+    public static class Workloads extends LinkedHashMap<String, Callable<Object>> implements AutoCloseable {
+        private static final long serialVersionUID = 1L;
+        private final Map<String, Integer> opsPerIteration = new HashMap<>();
+        private final List<Runnable> closers = new ArrayList<>();
+        
+        void add(String name, int opsPerIteration, Callable<Object> operation) {
+            put(name, operation);
+            this.opsPerIteration.put(name, opsPerIteration);
+        }
+        
+        int opsPerIteration(String name) {
+            return opsPerIteration.getOrDefault(name, 1);
+        }
+        
+        void onClose(Runnable closer) {
+            closers.add(closer);
+        }
+        
+        @Override
+        public void close() {
+            for (Runnable closer : closers) {
+                closer.run();
+            }
+            closers.clear();
+        }
+    }
+    
+    interface Operation {
+        void run() throws Exception;
+    }
+    
+    static void run(String name, int opsPerIteration, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            for (int op = 0; op < opsPerIteration; op++) {
+                operation.run();
+            }
+        }
+        
+        long bestNanos = Long.MAX_VALUE;
+        long totalNanos = 0;
+        long allocatedBefore = allocatedBytes();
+        
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            for (int op = 0; op < opsPerIteration; op++) {
+                operation.run();
+            }
+            long elapsed = System.nanoTime() - start;
+            bestNanos = Math.min(bestNanos, elapsed);
+            totalNanos += elapsed;
+        }
+        
+        long ops = (long) opsPerIteration * MEASURED_ITERATIONS;
+        long allocatedPerOp = (allocatedBytes() - allocatedBefore) / ops;
+        
+        System.out.printf(Locale.ROOT, "%-40s %14.1f ns/op (best %.1f) %12d B/op%n",
+            name, (double) totalNanos / ops,
+            (double) bestNanos / opsPerIteration, allocatedPerOp);
+        record(name, (double) totalNanos / ops, (double) bestNanos / opsPerIteration, allocatedPerOp);
+    }
+    
+    // One JSON line per result, tagged with the run and JVM
+    private static void record(String name, double nanosPerOp, double bestNanosPerOp,
+                               long bytesPerOp) throws IOException {
+        JsonObject result = new JsonObject();
+        result.addProperty("run", RUN_STARTED);
+        result.addProperty("benchmark", name);
+        result.addProperty("nsPerOp", nanosPerOp);
+        result.addProperty("bestNsPerOp", bestNanosPerOp);
+        result.addProperty("bytesPerOp", bytesPerOp);
+        result.addProperty("java", System.getProperty("java.version"));
+        result.addProperty("cpus", Runtime.getRuntime().availableProcessors());
+        
+        Path output = Paths.get(System.getProperty("bench.output", "bench-results.jsonl"));
+        Files.write(output, (GSON.toJson(result) + "\n").getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+    
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,401 @@
+// Catalog.java
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Every economy and WDI indicator the API knows about, kept in
+// ~/.worldbank-analyser/catalog.json so startup never waits on the network.
+// The lists are refreshed in the background when the file is missing or a
+// week old, and searched through an in-memory word-prefix and trigram index.
+public class Catalog {
+    private static final long MAX_AGE_MILLIS = 7L * 24 * 60 * 60 * 1000;
+    private static final String WDI_SOURCE = "2";
+    
+    private final WorldBankAPI api;
+    private final Path file;
+    private final Gson gson;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final Map<String, String> countryAliases;
+    private final Map<String, String> indicatorAliases;
+    private volatile Index countries;
+    private volatile Index indicators;
+    private CompletableFuture<Void> refreshing;
+    
+    public Catalog(WorldBankAPI api, Map<String, String> defaultCountries,
+                   Map<String, String> defaultIndicators) {
+        this(api, Paths.get(System.getProperty("user.home"), ".worldbank-analyser", "catalog.json"),
+            defaultCountries, defaultIndicators);
+    }
+    
+    // The defaults (name -> code) are all there is until the first download
+    // completes, and stay on afterwards as aliases, so "South Korea" still
+    // resolves once the API's "Korea, Rep." is loaded
+    public Catalog(WorldBankAPI api, Path file, Map<String, String> defaultCountries,
+                   Map<String, String> defaultIndicators) {
+        this.api = api;
+        this.file = file;
+        this.gson = new Gson();
+        this.countryAliases = new HashMap<>(defaultCountries);
+        this.indicatorAliases = new HashMap<>(defaultIndicators);
+        this.countries = new Index(new ArrayList<>(), countryAliases);
+        this.indicators = new Index(new ArrayList<>(), indicatorAliases);
+        load();
+    }
+    
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonObject stored = gson.fromJson(reader, JsonObject.class);
+            countries = new Index(readEntries(stored.getAsJsonArray("countries")), countryAliases);
+            indicators = new Index(readEntries(stored.getAsJsonArray("indicators")), indicatorAliases);
+        } catch (Exception e) {
+            System.err.println("Failed to read catalog: " + e.getMessage());
+        }
+    }
+    
+    private static List<Entry> readEntries(JsonArray array) {
+        List<Entry> entries = new ArrayList<>(array.size());
+        for (JsonElement element : array) {
+            JsonObject entry = element.getAsJsonObject();
+            entries.add(new Entry(entry.get("code").getAsString(), entry.get("name").getAsString()));
+        }
+        return entries;
+    }
+    
+    private void save(List<Entry> countryList, List<Entry> indicatorList) throws IOException {
+        JsonObject stored = new JsonObject();
+        stored.add("countries", writeEntries(countryList));
+        stored.add("indicators", writeEntries(indicatorList));
+        
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+            gson.toJson(stored, writer);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private static JsonArray writeEntries(List<Entry> entries) {
+        JsonArray array = new JsonArray();
+        for (Entry entry : entries) {
+            JsonObject object = new JsonObject();
+            object.addProperty("code", entry.code);
+            object.addProperty("name", entry.name);
+            array.add(object);
+        }
+        return array;
+    }
+    
+    // Called on a background thread whenever the lists change
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+    
+    // Starts a background download if the stored lists are missing or old
+    public synchronized CompletableFuture<Void> refreshIfStale() {
+        if (refreshing != null && !refreshing.isDone()) {
+            return refreshing;
+        }
+        try {
+            if (Files.exists(file) && System.currentTimeMillis()
+                    - Files.getLastModifiedTime(file).toMillis() < MAX_AGE_MILLIS) {
+                return CompletableFuture.completedFuture(null);
+            }
+        } catch (IOException e) {
+            // Treat an unreadable timestamp as stale
+        }
+        
+        refreshing = api.getEngine().submit(() -> {
+            refresh();
+            return null;
+        });
+        refreshing.exceptionally(e -> {
+            System.err.println("Failed to refresh catalog: " + e.getMessage());
+            return null;
+        });
+        return refreshing;
+    }
+    
+    public void refresh() throws Exception {
+        List<Entry> countryList = new ArrayList<>();
+        for (JsonObject record : api.fetchMetadataList("/country")) {
+            countryList.add(new Entry(record.get("id").getAsString(),
+                record.get("name").getAsString().trim()));
+        }
+        List<Entry> indicatorList = new ArrayList<>();
+        for (JsonObject record : api.fetchMetadataList("/indicator?source=" + WDI_SOURCE)) {
+            indicatorList.add(new Entry(record.get("id").getAsString(),
+                record.get("name").getAsString().trim()));
+        }
+        if (countryList.isEmpty() || indicatorList.isEmpty()) {
+            return;
+        }
+        
+        save(countryList, indicatorList);
+        countries = new Index(countryList, countryAliases);
+        indicators = new Index(indicatorList, indicatorAliases);
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+    
+    public List<Entry> searchCountries(String query, int limit) {
+        return countries.search(query, limit);
+    }
+    
+    public List<Entry> searchIndicators(String query, int limit) {
+        return indicators.search(query, limit);
+    }
+    
+    // Exact name, alias or code, else the only search match. Null when
+    // nothing or more than one entry matches, rather than guessing.
+    public Entry findCountry(String text) {
+        return countries.find(text);
+    }
+    
+    public Entry findIndicator(String text) {
+        return indicators.find(text);
+    }
+    
+    public int getCountryCount() {
+        return countries.entries.length;
+    }
+    
+    public int getIndicatorCount() {
+        return indicators.entries.length;
+    }
+    
+    public static class Entry {
+        private final String code;
+        private final String name;
+        
+        public Entry(String code, String name) {
+            this.code = code;
+            this.name = name;
+        }
+        
+        public String getCode() {
+            return code;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+    
+    // Immutable; replaced wholesale when the lists are refreshed
+    static class Index {
+        private static final int[] NONE = new int[0];
+        
+        private final Entry[] entries;
+        private final String[] searchText;
+        private final Map<String, Entry> exact = new HashMap<>();
+        // Sorted words with the entry each came from, for short queries
+        private final String[] words;
+        private final int[] wordOwners;
+        // Entries containing each three-character sequence, ascending
+        private final Map<String, int[]> trigrams = new HashMap<>();
+        
+        // aliases maps extra names to codes; an alias for a code the list
+        // lacks becomes an entry of its own
+        Index(List<Entry> list, Map<String, String> aliases) {
+            List<Entry> all = new ArrayList<>(list);
+            Map<String, String> aliasText = new HashMap<>();
+            Set<String> codes = new HashSet<>();
+            for (Entry entry : list) {
+                codes.add(normalize(entry.code));
+            }
+            for (Map.Entry<String, String> alias : aliases.entrySet()) {
+                if (codes.add(normalize(alias.getValue()))) {
+                    all.add(new Entry(alias.getValue(), alias.getKey()));
+                } else {
+                    aliasText.merge(normalize(alias.getValue()), alias.getKey(), (a, b) -> a + " " + b);
+                }
+            }
+            
+            entries = all.toArray(new Entry[0]);
+            Arrays.sort(entries, Comparator.comparing((Entry e) -> e.name, String.CASE_INSENSITIVE_ORDER));
+            searchText = new String[entries.length];
+            
+            List<String[]> wordPairs = new ArrayList<>();
+            Map<String, int[]> building = new HashMap<>();
+            Map<String, Integer> sizes = new HashMap<>();
+            for (int i = 0; i < entries.length; i++) {
+                String text = normalize(entries[i].name + " " + entries[i].code + " "
+                    + aliasText.getOrDefault(normalize(entries[i].code), ""));
+                searchText[i] = text;
+                exact.putIfAbsent(normalize(entries[i].name), entries[i]);
+                exact.putIfAbsent(normalize(entries[i].code), entries[i]);
+                
+                for (String word : text.split("[^a-z0-9.%$]+")) {
+                    if (!word.isEmpty()) {
+                        wordPairs.add(new String[] {word, String.valueOf(i)});
+                    }
+                }
+                for (int k = 0; k + 3 <= text.length(); k++) {
+                    String gram = text.substring(k, k + 3);
+                    int[] postings = building.get(gram);
+                    int size = sizes.getOrDefault(gram, 0);
+                    if (postings == null) {
+                        postings = new int[4];
+                    } else if (postings[size - 1] == i) {
+                        continue;
+                    } else if (size == postings.length) {
+                        postings = Arrays.copyOf(postings, size * 2);
+                    }
+                    postings[size] = i;
+                    building.put(gram, postings);
+                    sizes.put(gram, size + 1);
+                }
+            }
+            for (Map.Entry<String, String> alias : aliases.entrySet()) {
+                Entry target = exact.get(normalize(alias.getValue()));
+                if (target != null) {
+                    exact.putIfAbsent(normalize(alias.getKey()), target);
+                }
+            }
+            for (Map.Entry<String, int[]> entry : building.entrySet()) {
+                trigrams.put(entry.getKey(), Arrays.copyOf(entry.getValue(), sizes.get(entry.getKey())));
+            }
+            
+            wordPairs.sort(Comparator.comparing((String[] pair) -> pair[0]));
+            words = new String[wordPairs.size()];
+            wordOwners = new int[wordPairs.size()];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = wordPairs.get(i)[0];
+                wordOwners[i] = Integer.parseInt(wordPairs.get(i)[1]);
+            }
+        }
+        
+        Entry find(String text) {
+            if (text == null || text.trim().isEmpty()) {
+                return null;
+            }
+            Entry match = exact.get(normalize(text));
+            if (match != null) {
+                return match;
+            }
+            List<Entry> matches = search(text, 2);
+            return matches.size() == 1 ? matches.get(0) : null;
+        }
+        
+        List<Entry> search(String query, int limit) {
+            String q = query == null ? "" : normalize(query);
+            List<Entry> results = new ArrayList<>();
+            if (q.isEmpty()) {
+                for (int i = 0; i < Math.min(limit, entries.length); i++) {
+                    results.add(entries[i]);
+                }
+                return results;
+            }
+            
+            BitSet candidates = q.length() < 3 ? wordPrefixMatches(q) : trigramMatches(q);
+            
+            // Rank: exact, name prefix, word prefix, anywhere; then by name
+            List<int[]> scored = new ArrayList<>();
+            for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+                String text = searchText[i];
+                int position = text.indexOf(q);
+                if (position < 0) {
+                    continue;
+                }
+                int score;
+                if (normalize(entries[i].name).equals(q) || normalize(entries[i].code).equals(q)) {
+                    score = 0;
+                } else if (position == 0) {
+                    score = 1;
+                } else if (!Character.isLetterOrDigit(text.charAt(position - 1))) {
+                    score = 2;
+                } else {
+                    score = 3;
+                }
+                scored.add(new int[] {score, i});
+            }
+            scored.sort((a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+            
+            for (int k = 0; k < Math.min(limit, scored.size()); k++) {
+                results.add(entries[scored.get(k)[1]]);
+            }
+            return results;
+        }
+        
+        private BitSet wordPrefixMatches(String prefix) {
+            BitSet matches = new BitSet(entries.length);
+            int low = 0;
+            int high = words.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (words[mid].compareTo(prefix) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            for (int i = low; i < words.length && words[i].startsWith(prefix); i++) {
+                matches.set(wordOwners[i]);
+            }
+            return matches;
+        }
+        
+        // Entries holding every trigram of the query; the contains() check in
+        // search() removes the few that have them out of order
+        private BitSet trigramMatches(String q) {
+            int[] smallest = null;
+            List<int[]> lists = new ArrayList<>();
+            for (int k = 0; k + 3 <= q.length(); k++) {
+                int[] postings = trigrams.getOrDefault(q.substring(k, k + 3), NONE);
+                lists.add(postings);
+                if (smallest == null || postings.length < smallest.length) {
+                    smallest = postings;
+                }
+            }
+            
+            BitSet matches = new BitSet(entries.length);
+            for (int id : smallest) {
+                boolean all = true;
+                for (int[] postings : lists) {
+                    if (postings != smallest && Arrays.binarySearch(postings, id) < 0) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) {
+                    matches.set(id);
+                }
+            }
+            return matches;
+        }
+        
+        private static String normalize(String text) {
+            return text.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+}
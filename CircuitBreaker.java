@@ -0,0 +1,72 @@
+// CircuitBreaker.java
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stops calling a failing service for a while after repeated failures,
+// then lets a single trial request through to see if it has recovered.
+public class CircuitBreaker {
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+    
+    private final int failureThreshold;
+    private final long openMillis;
+    
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    
+    private final AtomicLong rejectedCalls = new AtomicLong();
+    private final AtomicLong timesOpened = new AtomicLong();
+    
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+    
+    public synchronized boolean allowRequest() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                rejectedCalls.incrementAndGet();
+                return false;
+            }
+            state = State.HALF_OPEN;
+            openedAt = System.currentTimeMillis();
+            return true;
+        }
+        if (state == State.HALF_OPEN) {
+            // One trial request at a time; allow another if the last one never reported back
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                rejectedCalls.incrementAndGet();
+                return false;
+            }
+            openedAt = System.currentTimeMillis();
+        }
+        return true;
+    }
+    
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+    
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                timesOpened.incrementAndGet();
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+    
+    public synchronized boolean isOpen() {
+        return state == State.OPEN;
+    }
+    
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+    
+    public long getTimesOpened() {
+        return timesOpened.get();
+    }
+}
@@ -0,0 +1,318 @@
+// DeltaRefresher.java
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Keeps local series current by refetching only what changed upstream.
+// Each source (WDI is source 2) publishes a `lastupdated` date; every
+// series we hold carries a watermark with the date it was last synced
+// against, and only series whose source moved past it are refetched.
+//
+// Watermarks are kept in ~/.worldbank-analyser/watermarks.properties.
+public class DeltaRefresher {
+    private static final long DEFAULT_INTERVAL_HOURS = 24;
+    private static final int DEFAULT_MAX_CONCURRENT = 4;
+    
+    public interface Listener {
+        // Called once per refreshed series, from worker threads
+        void refreshed(String countryCode, String indicator, WorldBankData data);
+    }
+    
+    private final WorldBankAPI api;
+    private final Path watermarkFile;
+    private final Properties watermarks = new Properties();
+    private final int maxConcurrent;
+    private final Map<String, String> indicatorSources = new ConcurrentHashMap<>();
+    private PanelStore panelStore;
+    private Listener listener;
+    private ScheduledExecutorService scheduler;
+    
+    public DeltaRefresher(WorldBankAPI api) {
+        this(api, Paths.get(System.getProperty("user.home"), ".worldbank-analyser",
+            "watermarks.properties"), Integer.getInteger("worldbank.refreshConcurrency",
+            DEFAULT_MAX_CONCURRENT));
+    }
+    
+    public DeltaRefresher(WorldBankAPI api, Path watermarkFile, int maxConcurrent) {
+        this.api = api;
+        this.watermarkFile = watermarkFile;
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        loadWatermarks();
+    }
+    
+    // Series in the panel file are checked too, and rewritten when they change
+    public synchronized void setPanelStore(PanelStore panelStore) {
+        this.panelStore = panelStore;
+    }
+    
+    public synchronized void setListener(Listener listener) {
+        this.listener = listener;
+    }
+    
+    public String getWatermark(String countryCode, String indicator) {
+        return watermark(key(countryCode, indicator));
+    }
+    
+    // Runs refresh() every `worldbank.refreshHours` hours (default 24) on a daemon thread
+    public void start() {
+        long hours = Long.getLong("worldbank.refreshHours", DEFAULT_INTERVAL_HOURS);
+        start(hours, TimeUnit.HOURS);
+    }
+    
+    public synchronized void start(long interval, TimeUnit unit) {
+        schedule(interval, unit, () -> {
+            try {
+                Result result = refresh();
+                System.err.println("Delta refresh: " + result);
+            } catch (Exception e) {
+                System.err.println("Delta refresh failed: " + e.getMessage());
+            }
+        });
+    }
+    
+    // Same schedule, but each run is queued as background work on the
+    // scheduler so it yields to interactive requests; a run that is still
+    // going when the next one is due is joined rather than repeated
+    public synchronized void start(RequestScheduler requests) {
+        long hours = Long.getLong("worldbank.refreshHours", DEFAULT_INTERVAL_HOURS);
+        schedule(hours, TimeUnit.HOURS, () -> requests.submit("refresh", "delta-refresh",
+            RequestScheduler.Priority.BACKGROUND, this::refresh).getFuture()
+            .whenComplete((result, error) -> {
+                if (error != null) {
+                    System.err.println("Delta refresh failed: " + error.getMessage());
+                } else {
+                    System.err.println("Delta refresh: " + result);
+                }
+            }));
+    }
+    
+    private void schedule(long interval, TimeUnit unit, Runnable run) {
+        stop();
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "delta-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(run, interval, interval, unit);
+    }
+    
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    public Result refresh() throws Exception {
+        long start = System.nanoTime();
+        PanelStore panel;
+        Listener onRefreshed;
+        synchronized (this) {
+            panel = panelStore;
+            onRefreshed = listener;
+        }
+        
+        // Every series we hold, with the year span to refetch
+        Map<String, int[]> held = new LinkedHashMap<>();
+        SeriesStore store = api.getSeriesStore();
+        for (String key : store.keys()) {
+            String[] parts = key.split("\\|", 2);
+            SeriesStore.StoredSeries stored = store.get(parts[0], parts[1]);
+            int[] span = stored == null ? null : stored.coveredSpan();
+            if (span != null) {
+                held.put(key, span);
+            }
+        }
+        String panelSynced = null;
+        if (panel != null) {
+            long modified = panel.lastModified();
+            panelSynced = modified > 0 ? isoDate(modified) : null;
+            for (String key : panel.keys()) {
+                String[] parts = key.split("\\|", 2);
+                PanelStore.MappedSeries series = panel.getSeries(parts[0], parts[1]);
+                if (series.size() > 0) {
+                    held.putIfAbsent(key, new int[] {series.yearAt(0),
+                        series.yearAt(series.size() - 1)});
+                }
+            }
+        }
+        
+        // One metadata call per indicator (remembered) and per source (per run)
+        Map<String, String> sourceUpdated = new HashMap<>();
+        Map<String, List<String>> staleGroups = new LinkedHashMap<>();
+        Map<String, String> staleUpdated = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : held.entrySet()) {
+            String key = entry.getKey();
+            String indicator = key.substring(key.indexOf('|') + 1);
+            
+            String source = indicatorSources.get(indicator);
+            if (source == null) {
+                source = api.fetchIndicatorSource(indicator);
+                indicatorSources.put(indicator, source);
+            }
+            String updated = sourceUpdated.get(source);
+            if (updated == null && !sourceUpdated.containsKey(source)) {
+                updated = api.fetchSourceLastUpdated(source);
+                sourceUpdated.put(source, updated);
+            }
+            if (updated == null) {
+                continue;
+            }
+            
+            // Panel series without a watermark are as new as the panel file
+            String watermark = watermark(key);
+            if (watermark == null && panel != null && panel.contains(key.substring(0,
+                    key.indexOf('|')), indicator)) {
+                watermark = panelSynced;
+            }
+            if (watermark != null && watermark.compareTo(updated) >= 0) {
+                continue;
+            }
+            
+            // Group by indicator and span so countries share batch requests
+            int[] span = entry.getValue();
+            String group = indicator + "|" + span[0] + "|" + span[1];
+            staleGroups.computeIfAbsent(group, g -> new ArrayList<>())
+                .add(key.substring(0, key.indexOf('|')));
+            staleUpdated.put(group, updated);
+        }
+        
+        Semaphore permits = new Semaphore(maxConcurrent);
+        AtomicInteger refreshed = new AtomicInteger();
+        List<CompletableFuture<Void>> running = new ArrayList<>();
+        for (Map.Entry<String, List<String>> group : staleGroups.entrySet()) {
+            String[] parts = group.getKey().split("\\|");
+            String indicator = parts[0];
+            int startYear = Integer.parseInt(parts[1]);
+            int endYear = Integer.parseInt(parts[2]);
+            List<String> countries = group.getValue();
+            String updated = staleUpdated.get(group.getKey());
+            
+            permits.acquire();
+            running.add(api.getEngine().submit(() -> {
+                try {
+                    Map<String, Map<String, WorldBankData>> batch = api.refreshBatch(
+                        countries, Collections.singletonList(indicator), startYear, endYear);
+                    for (String country : countries) {
+                        WorldBankData data = batch.get(country).get(indicator);
+                        if (panel != null && panel.contains(country, indicator)) {
+                            panel.put(country, indicator, data);
+                        }
+                        if (onRefreshed != null) {
+                            onRefreshed.refreshed(country, indicator, data);
+                        }
+                        setWatermark(key(country, indicator), updated);
+                        refreshed.incrementAndGet();
+                    }
+                    return null;
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        
+        // Every task has to be done with the panel and the watermarks before
+        // either is written, even when one of them failed
+        CompletableFuture.allOf(running.toArray(new CompletableFuture<?>[0]))
+            .handle((value, error) -> null)
+            .join();
+        if (panel != null) {
+            panel.flush();
+        }
+        saveWatermarks();
+        
+        // Series that did refresh are kept; the first failure is still reported
+        for (CompletableFuture<Void> future : running) {
+            future.join();
+        }
+        return new Result(held.size(), refreshed.get(), System.nanoTime() - start);
+    }
+    
+    private synchronized String watermark(String key) {
+        return watermarks.getProperty(key);
+    }
+    
+    private synchronized void setWatermark(String key, String updated) {
+        watermarks.setProperty(key, updated);
+    }
+    
+    private synchronized void loadWatermarks() {
+        if (!Files.exists(watermarkFile)) {
+            return;
+        }
+        try (InputStream in = Files.newInputStream(watermarkFile)) {
+            watermarks.load(in);
+        } catch (IOException e) {
+            System.err.println("Failed to read refresh watermarks: " + e.getMessage());
+        }
+    }
+    
+    private synchronized void saveWatermarks() throws IOException {
+        Files.createDirectories(watermarkFile.toAbsolutePath().getParent());
+        Path temp = watermarkFile.resolveSibling(watermarkFile.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            watermarks.store(out, "lastupdated date each series was last synced against");
+        }
+        Files.move(temp, watermarkFile, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private static String key(String countryCode, String indicator) {
+        return countryCode.toUpperCase() + "|" + indicator.toUpperCase();
+    }
+    
+    // Same yyyy-MM-dd form the API uses for lastupdated
+    static String isoDate(long epochMillis) {
+        return Instant.ofEpochMilli(epochMillis).atZone(ZoneOffset.UTC).toLocalDate().toString();
+    }
+    
+    public static class Result {
+        private final int checked;
+        private final int refreshed;
+        private final long elapsedNanos;
+        
+        Result(int checked, int refreshed, long elapsedNanos) {
+            this.checked = checked;
+            this.refreshed = refreshed;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        public int getChecked() {
+            return checked;
+        }
+        
+        public int getRefreshed() {
+            return refreshed;
+        }
+        
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%,d series checked, %,d refreshed in %.1f s",
+                checked, refreshed, elapsedNanos / 1e9);
+        }
+    }
+}
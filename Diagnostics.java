@@ -0,0 +1,288 @@
+// Diagnostics.java
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+import jdk.jfr.Timespan;
+
+// Per-stage timing for the fetch -> parse -> analyze -> render pipeline.
+// Each stage keeps a latency histogram plus byte and allocation totals,
+// and every span is also emitted as a JFR event, so a flight recording
+// lines our stages up with GC, I/O and lock events.
+//
+//   Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.PARSE);
+//   ... work ...
+//   span.end(bytes, detail);
+//
+// Time that is summed over many short intervals, or is too fine-grained
+// for a span, goes in with record(). DNS lookup, connect and TLS happen
+// inside java.net.http, which does not report them, so they stay part
+// of the http stage.
+public final class Diagnostics {
+    
+    public enum Stage {
+        FETCH("fetch"),      // WorldBankAPI.fetchData, cache hits included
+        HTTP("http"),        // one page request up to the response headers,
+                             // including limiter waits and retries
+        BODY("body"),        // blocking reads of one response body, summed
+        PARSE("parse"),      // parse of one response body, body reads excluded
+        SORT("sort"),        // Series.Builder.build, ordering rows by year
+        ANALYZE("analyze"),  // Bedrock analysis, request to full answer
+        RENDER("render");    // displayData on the EDT
+        
+        private final String label;
+        
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+    
+    private static final Map<Stage, StageStats> STATS = new EnumMap<>(Stage.class);
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+    private static final EventType STAGE_EVENTS = EventType.getEventType(StageEvent.class);
+    private static Recording recording;
+    
+    static {
+        for (Stage stage : Stage.values()) {
+            STATS.put(stage, new StageStats());
+        }
+    }
+    
+    private Diagnostics() {
+    }
+    
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        return bean instanceof com.sun.management.ThreadMXBean
+            ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+    
+    public static Span start(Stage stage) {
+        return new Span(stage);
+    }
+    
+    // Records time measured by the caller. Allocation is not counted, and
+    // the JFR event is instant, with the time in its stage time field.
+    public static void record(Stage stage, long nanos, long bytes, String detail) {
+        StageStats stats = STATS.get(stage);
+        stats.histogram.record(nanos);
+        stats.bytes.addAndGet(bytes);
+        
+        if (STAGE_EVENTS.isEnabled()) {
+            StageEvent event = new StageEvent();
+            event.stage = stage.label;
+            event.detail = detail;
+            event.bytes = bytes;
+            event.time = nanos;
+            event.commit();
+        }
+    }
+    
+    public static StageStats get(Stage stage) {
+        return STATS.get(stage);
+    }
+    
+    public static void reset() {
+        for (StageStats stats : STATS.values()) {
+            stats.histogram.reset();
+            stats.bytes.set(0);
+            stats.allocatedBytes.set(0);
+        }
+    }
+    
+    public static String report() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-8s %7s %9s %9s %9s %9s %12s %12s%n",
+            "stage", "count", "p50 ms", "p90 ms", "p99 ms", "max ms", "bytes", "allocated"));
+        for (Map.Entry<Stage, StageStats> entry : STATS.entrySet()) {
+            LatencyHistogram h = entry.getValue().histogram;
+            out.append(String.format(Locale.ROOT, "%-8s %7d %9.2f %9.2f %9.2f %9.2f %12s %12s%n",
+                entry.getKey().label, h.getCount(), h.getPercentile(50) / 1e6,
+                h.getPercentile(90) / 1e6, h.getPercentile(99) / 1e6, h.getMax() / 1e6,
+                humanBytes(entry.getValue().bytes.get()),
+                humanBytes(entry.getValue().allocatedBytes.get())));
+        }
+        return out.toString();
+    }
+    
+    private static String humanBytes(long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        if (bytes < 1024 * 1024) {
+            return String.format(Locale.ROOT, "%.1f KB", bytes / 1024.0);
+        }
+        return String.format(Locale.ROOT, "%.1f MB", bytes / (1024.0 * 1024));
+    }
+    
+    // Full histograms as JSON, for offline comparison between runs
+    public static void export(Path file) throws IOException {
+        JsonObject root = new JsonObject();
+        root.addProperty("exportedAt", Instant.now().toString());
+        root.addProperty("unit", "ns");
+        JsonObject stages = new JsonObject();
+        for (Map.Entry<Stage, StageStats> entry : STATS.entrySet()) {
+            LatencyHistogram h = entry.getValue().histogram;
+            JsonObject stage = new JsonObject();
+            stage.addProperty("count", h.getCount());
+            stage.addProperty("mean", h.getMean());
+            stage.addProperty("p50", h.getPercentile(50));
+            stage.addProperty("p90", h.getPercentile(90));
+            stage.addProperty("p99", h.getPercentile(99));
+            stage.addProperty("p999", h.getPercentile(99.9));
+            stage.addProperty("max", h.getMax());
+            stage.addProperty("bytes", entry.getValue().bytes.get());
+            stage.addProperty("allocatedBytes", entry.getValue().allocatedBytes.get());
+            JsonArray buckets = new JsonArray();
+            for (long[] bucket : h.getBuckets()) {
+                JsonArray pair = new JsonArray();
+                pair.add(bucket[0]);
+                pair.add(bucket[1]);
+                buckets.add(pair);
+            }
+            stage.add("buckets", buckets);
+            stages.add(entry.getKey().label, stage);
+        }
+        root.add("stages", stages);
+        Files.write(file, new GsonBuilder().setPrettyPrinting().create().toJson(root)
+            .getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // In-process flight recording with the default settings plus our events
+    public static synchronized void startRecording() {
+        if (recording != null) {
+            return;
+        }
+        recording = new Recording();
+        recording.enable(StageEvent.class);
+        recording.setName("worldbank-analyser");
+        recording.start();
+    }
+    
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+    
+    public static synchronized void stopRecording(Path file) throws IOException {
+        if (recording == null) {
+            return;
+        }
+        try {
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            recording.close();
+            recording = null;
+        }
+    }
+    
+    public static class StageStats {
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong allocatedBytes = new AtomicLong();
+        
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+        
+        public long getBytes() {
+            return bytes.get();
+        }
+        
+        public long getAllocatedBytes() {
+            return allocatedBytes.get();
+        }
+    }
+    
+    public static class Span {
+        private final Stage stage;
+        private final long startNanos;
+        private final long thread;
+        private final long startAllocated;
+        private final StageEvent event;
+        private long excludedNanos;
+        
+        Span(Stage stage) {
+            this.stage = stage;
+            this.thread = Thread.currentThread().getId();
+            this.startAllocated = THREADS == null ? 0 : THREADS.getThreadAllocatedBytes(thread);
+            this.event = new StageEvent();
+            event.begin();
+            this.startNanos = System.nanoTime();
+        }
+        
+        // Takes time that belongs to another stage out of this span; the
+        // JFR event still covers the whole span
+        public void exclude(long nanos) {
+            excludedNanos += nanos;
+        }
+        
+        public void end() {
+            end(0, null);
+        }
+        
+        // Allocation is only counted when the span ends on the thread that
+        // started it; async stages report time and bytes only
+        public void end(long bytes, String detail) {
+            long elapsed = System.nanoTime() - startNanos - excludedNanos;
+            long allocated = THREADS != null && Thread.currentThread().getId() == thread
+                ? THREADS.getThreadAllocatedBytes(thread) - startAllocated : 0;
+            
+            StageStats stats = STATS.get(stage);
+            stats.histogram.record(elapsed);
+            stats.bytes.addAndGet(bytes);
+            stats.allocatedBytes.addAndGet(allocated);
+            
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage.label;
+                event.detail = detail;
+                event.bytes = bytes;
+                event.allocated = allocated;
+                event.time = elapsed;
+                event.commit();
+            }
+        }
+    }
+    
+    @Name("worldbank.Stage")
+    @Label("World Bank Pipeline Stage")
+    @Category("World Bank Analyser")
+    static class StageEvent extends Event {
+        @Label("Stage")
+        String stage;
+        
+        @Label("Detail")
+        String detail;
+        
+        @Label("Bytes")
+        @DataAmount
+        long bytes;
+        
+        @Label("Allocated")
+        @DataAmount
+        long allocated;
+        
+        // What the histogram recorded: the span less excluded time, or the
+        // caller's figure for record()
+        @Label("Stage Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long time;
+    }
+}
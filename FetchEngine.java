@@ -0,0 +1,274 @@
+// FetchEngine.java
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+// Shared HTTP transport: one HttpClient (HTTP/2, keep-alive, gzip) for the
+// whole app, a cap on requests in flight, and a task executor that uses
+// virtual threads when the runtime has them. Requests go through a rate
+// limiter and a circuit breaker, and 429/5xx/IO failures are retried.
+public class FetchEngine {
+    private static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_REQUEST_TIMEOUT = Duration.ofSeconds(30);
+    private static final int DEFAULT_MAX_IN_FLIGHT = 16;
+    private static final int DEFAULT_MAX_RETRIES = 4;
+    private static final int DEFAULT_REQUESTS_PER_SECOND = 20;
+    private static final int DEFAULT_BURST = 20;
+    private static final int DEFAULT_BREAKER_FAILURES = 5;
+    private static final long DEFAULT_BREAKER_OPEN_MILLIS = 30_000;
+    private static final long BASE_BACKOFF_MILLIS = 500;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+    
+    private final HttpClient client;
+    private final Duration requestTimeout;
+    private final Semaphore inFlight;
+    private final ExecutorService executor;
+    private final RateLimiter rateLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private volatile int maxRetries = DEFAULT_MAX_RETRIES;
+    
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong throttledResponses = new AtomicLong();
+    
+    public FetchEngine() {
+        this(DEFAULT_CONNECT_TIMEOUT, DEFAULT_REQUEST_TIMEOUT, DEFAULT_MAX_IN_FLIGHT);
+    }
+    
+    // Rate limit and breaker come from -Dworldbank.requestsPerSecond,
+    // -Dworldbank.requestBurst, -Dworldbank.breakerFailures and
+    // -Dworldbank.breakerOpenMillis
+    public FetchEngine(Duration connectTimeout, Duration requestTimeout, int maxInFlight) {
+        this(connectTimeout, requestTimeout, maxInFlight,
+            new RateLimiter(Integer.getInteger("worldbank.requestsPerSecond", DEFAULT_REQUESTS_PER_SECOND),
+                Integer.getInteger("worldbank.requestBurst", DEFAULT_BURST)),
+            new CircuitBreaker(Integer.getInteger("worldbank.breakerFailures", DEFAULT_BREAKER_FAILURES),
+                Long.getLong("worldbank.breakerOpenMillis", DEFAULT_BREAKER_OPEN_MILLIS)));
+    }
+    
+    public FetchEngine(Duration connectTimeout, Duration requestTimeout, int maxInFlight,
+                       RateLimiter rateLimiter, CircuitBreaker circuitBreaker) {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(connectTimeout)
+            .build();
+        this.requestTimeout = requestTimeout;
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.executor = createExecutor();
+        this.rateLimiter = rateLimiter;
+        this.circuitBreaker = circuitBreaker;
+    }
+    
+    // Virtual threads on Java 21+, otherwise a cached pool of daemon threads
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "worldbank-fetch");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+    
+    public void setMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+    }
+    
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+    
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    public long getRetries() {
+        return retries.get();
+    }
+    
+    public long getThrottledResponses() {
+        return throttledResponses.get();
+    }
+    
+    public String getStats() {
+        return String.format("retries=%d throttled=%d rateLimited=%d circuitRejected=%d circuitOpened=%d",
+            getRetries(), getThrottledResponses(), rateLimiter.getThrottledAcquires(),
+            circuitBreaker.getRejectedCalls(), circuitBreaker.getTimesOpened());
+    }
+    
+    // Cancelling the returned future interrupts the task, which aborts a
+    // blocked send or body read and releases its in-flight permit
+    public <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = executor.submit(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable e) {
+                result.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                running.cancel(true);
+            }
+        });
+        return result;
+    }
+    
+    // Blocking GET. The in-flight permit is held until the returned
+    // response is closed, so callers must close it. 429 and 5xx answers
+    // are retried; if retries run out the last response is returned.
+    public Response get(String url, Map<String, String> headers)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+            .timeout(requestTimeout)
+            .header("Accept", "application/json")
+            .header("Accept-Encoding", "gzip")
+            .GET();
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            builder.header(header.getKey(), header.getValue());
+        }
+        HttpRequest request = builder.build();
+        
+        // The breaker sees one outcome per request, not one per attempt, so a
+        // single series working through its retries cannot open it alone
+        if (!circuitBreaker.allowRequest()) {
+            throw new IOException("Circuit breaker open: World Bank API is failing");
+        }
+        
+        for (int attempt = 0; ; attempt++) {
+            rateLimiter.acquire();
+            
+            Response response;
+            try {
+                response = send(request);
+            } catch (IOException e) {
+                if (attempt >= maxRetries) {
+                    circuitBreaker.recordFailure();
+                    throw e;
+                }
+                backoff(attempt, null);
+                continue;
+            }
+            
+            int status = response.getStatusCode();
+            if (status != 429 && status < 500) {
+                circuitBreaker.recordSuccess();
+                return response;
+            }
+            
+            if (status == 429) {
+                throttledResponses.incrementAndGet();
+            }
+            if (attempt >= maxRetries) {
+                circuitBreaker.recordFailure();
+                return response;
+            }
+            String retryAfter = response.getHeader("Retry-After");
+            response.close();
+            backoff(attempt, retryAfter);
+        }
+    }
+    
+    private Response send(HttpRequest request) throws IOException, InterruptedException {
+        inFlight.acquire();
+        try {
+            HttpResponse<InputStream> response = client.send(request,
+                HttpResponse.BodyHandlers.ofInputStream());
+            return new Response(response, inFlight);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+    }
+    
+    // Exponential backoff with jitter, stretched to honour Retry-After
+    private void backoff(int attempt, String retryAfter) throws InterruptedException {
+        retries.incrementAndGet();
+        long delay = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 16));
+        delay = delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+        
+        if (retryAfter != null) {
+            try {
+                delay = Math.max(delay, TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim())));
+            } catch (NumberFormatException e) {
+                // HTTP-date form; fall back to our own backoff
+            }
+        }
+        Thread.sleep(Math.min(delay, MAX_BACKOFF_MILLIS));
+    }
+    
+    public static class Response implements Closeable {
+        private final HttpResponse<InputStream> response;
+        private final Semaphore permits;
+        private final InputStream body;
+        private boolean closed;
+        
+        Response(HttpResponse<InputStream> response, Semaphore permits) throws IOException {
+            this.response = response;
+            this.permits = permits;
+            
+            InputStream raw = response.body();
+            String encoding = response.headers().firstValue("Content-Encoding").orElse("");
+            // 304s and other bodiless replies may still carry the header
+            boolean gzipped = encoding.equalsIgnoreCase("gzip") && response.statusCode() == 200;
+            this.body = new FilterInputStream(gzipped ? new GZIPInputStream(raw) : raw) {
+                @Override
+                public void close() throws IOException {
+                    Response.this.close();
+                }
+            };
+        }
+        
+        public int getStatusCode() {
+            return response.statusCode();
+        }
+        
+        public String getHeader(String name) {
+            return response.headers().firstValue(name).orElse(null);
+        }
+        
+        public InputStream getBody() {
+            return body;
+        }
+        
+        @Override
+        public synchronized void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                response.body().close();
+            } finally {
+                permits.release();
+            }
+        }
+    }
+}
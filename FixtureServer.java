@@ -0,0 +1,372 @@
+// FixtureServer.java
+import com.sun.net.httpserver.HttpExchange;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+// Local stand-in for api.worldbank.org used by the benchmarks. Requests are
+// answered from recorded responses when a fixture directory holds one for
+// the exact path and query, and otherwise from deterministic synthetic
+// data in the same v2 JSON shape. Every response waits a configurable
+// latency first, and ETags are honoured so revalidation paths are exercised.
+//
+// Point the client at it with -Dworldbank.apiRoot=<getApiRoot()>.
+//
+// It also fakes the two Bedrock runtime calls BedrockService makes, under
+// /model/{id}/invoke and /model/{id}/invoke-with-response-stream. Both
+// answer with STREAM_TOKENS; the streaming one sends each token as its own
+// AWS event stream frame and flushes it before the next. Point the service
+// at it with -Dbedrock.endpoint=<getBedrockEndpoint()>.
+//
+// Usage: java FixtureServer record <dir> <url>...
+//        java FixtureServer serve [dir] [port] [latency-ms]
+public class FixtureServer {
+    private static final String LAST_UPDATED = "2025-07-01";
+    
+    // The fake model's answer, one entry per streamed chunk
+    static final List<String> STREAM_TOKENS = List.of(" Growth", " was", " steady,", " with",
+        " a", " dip", " in", " 2009", " and", " a", " \"V\"", " shaped", " recovery.");
+    
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Path fixtureDir;
+    private final long latencyMillis;
+    private final AtomicLong requests = new AtomicLong();
+    
+    public FixtureServer(int port, long latencyMillis, Path fixtureDir) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.fixtureDir = fixtureDir;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        this.executor = Executors.newFixedThreadPool(32, runnable -> {
+            Thread thread = new Thread(runnable, "fixture-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/v2/", this::handle);
+        server.createContext("/model/", this::handleModel);
+    }
+    
+    public void start() {
+        server.start();
+    }
+    
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+    
+    public String getApiRoot() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v2";
+    }
+    
+    public String getBedrockEndpoint() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+    
+    public long getRequests() {
+        return requests.get();
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            
+            URI uri = exchange.getRequestURI();
+            byte[] body = recorded(uri);
+            if (body == null) {
+                body = synthetic(uri.getPath(), query(uri.getRawQuery()));
+            }
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            
+            String etag = "\"" + TieredCache.sha256(new String(body, StandardCharsets.ISO_8859_1))
+                .substring(0, 16) + "\"";
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                return;
+            }
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/json;charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    private void handleModel(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        try {
+            exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+            if (latencyMillis > 0) {
+                Thread.sleep(latencyMillis);
+            }
+            
+            String path = exchange.getRequestURI().getPath();
+            if (path.endsWith("/invoke")) {
+                JsonObject answer = new JsonObject();
+                answer.addProperty("completion", String.join("", STREAM_TOKENS));
+                answer.addProperty("stop_reason", "stop_sequence");
+                byte[] body = utf8(answer.toString());
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+                return;
+            }
+            if (!path.endsWith("/invoke-with-response-stream")) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            
+            exchange.getResponseHeaders().set("Content-Type", "application/vnd.amazon.eventstream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < STREAM_TOKENS.size(); i++) {
+                    JsonObject chunk = new JsonObject();
+                    chunk.addProperty("completion", STREAM_TOKENS.get(i));
+                    chunk.addProperty("stop_reason", i + 1 == STREAM_TOKENS.size() ? "stop_sequence" : null);
+                    JsonObject payload = new JsonObject();
+                    payload.addProperty("bytes", Base64.getEncoder().encodeToString(utf8(chunk.toString())));
+                    out.write(eventFrame("chunk", utf8(payload.toString())));
+                    out.flush();
+                    Thread.sleep(5);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+    
+    // One application/vnd.amazon.eventstream message: total length, headers
+    // length and a CRC of those two, then string headers, the payload, and
+    // a CRC of everything before it
+    static byte[] eventFrame(String eventType, byte[] payload) {
+        ByteArrayOutputStream headers = new ByteArrayOutputStream();
+        eventHeader(headers, ":event-type", eventType);
+        eventHeader(headers, ":content-type", "application/json");
+        eventHeader(headers, ":message-type", "event");
+        
+        int total = 12 + headers.size() + payload.length + 4;
+        ByteBuffer frame = ByteBuffer.allocate(total);
+        frame.putInt(total).putInt(headers.size());
+        frame.putInt((int) crc32(frame.array(), 0, 8));
+        frame.put(headers.toByteArray()).put(payload);
+        frame.putInt((int) crc32(frame.array(), 0, total - 4));
+        return frame.array();
+    }
+    
+    private static void eventHeader(ByteArrayOutputStream out, String name, String value) {
+        byte[] nameBytes = utf8(name);
+        byte[] valueBytes = utf8(value);
+        out.write(nameBytes.length);
+        out.write(nameBytes, 0, nameBytes.length);
+        out.write(7); // string
+        out.write(valueBytes.length >>> 8);
+        out.write(valueBytes.length);
+        out.write(valueBytes, 0, valueBytes.length);
+    }
+    
+    static long crc32(byte[] bytes, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return crc.getValue();
+    }
+    
+    private byte[] recorded(URI uri) throws IOException {
+        if (fixtureDir == null) {
+            return null;
+        }
+        Path file = fixtureDir.resolve(fixtureName(uri.getPath(), uri.getRawQuery()));
+        return Files.exists(file) ? Files.readAllBytes(file) : null;
+    }
+    
+    // Recorded responses are keyed by path and query, independent of host
+    static String fixtureName(String path, String query) {
+        String key = path.replaceFirst("^.*?/v2/", "/v2/") + (query == null ? "" : "?" + query);
+        return TieredCache.sha256(key) + ".json";
+    }
+    
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(pair.substring(0, eq), pair.substring(eq + 1));
+            }
+        }
+        return params;
+    }
+    
+    private static byte[] synthetic(String path, Map<String, String> params) {
+        String[] parts = path.split("/");
+        // /v2/country/{codes}/indicator/{codes}
+        if (parts.length == 6 && parts[2].equals("country") && parts[4].equals("indicator")) {
+            return observations(parts[3].split(";"), parts[5].split(";"), params);
+        }
+        // /v2/sources/{id}
+        if (parts.length == 4 && parts[2].equals("sources")) {
+            return utf8("[{\"page\":1,\"pages\":1,\"per_page\":50,\"total\":1},"
+                + "[{\"id\":\"" + parts[3] + "\",\"lastupdated\":\"" + LAST_UPDATED + "\","
+                + "\"name\":\"World Development Indicators\"}]]");
+        }
+        // /v2/indicator/{id}
+        if (parts.length == 4 && parts[2].equals("indicator")) {
+            return utf8("[{\"page\":1,\"pages\":1,\"per_page\":50,\"total\":1},"
+                + "[{\"id\":\"" + parts[3] + "\",\"name\":\"" + parts[3] + "\","
+                + "\"source\":{\"id\":\"2\",\"value\":\"World Development Indicators\"}}]]");
+        }
+        // /v2/country and /v2/indicator listings
+        if (parts.length == 3 && (parts[2].equals("country") || parts[2].equals("indicator"))) {
+            return listing(parts[2], params);
+        }
+        return null;
+    }
+    
+    // Rows newest year first, country by country, as the API orders them
+    private static byte[] observations(String[] countries, String[] indicators,
+                                       Map<String, String> params) {
+        String[] range = params.getOrDefault("date", "1960:2023").split(":");
+        int startYear = Integer.parseInt(range[0]);
+        int endYear = Integer.parseInt(range[range.length - 1]);
+        int perPage = Integer.parseInt(params.getOrDefault("per_page", "50"));
+        int page = Integer.parseInt(params.getOrDefault("page", "1"));
+        
+        int years = endYear - startYear + 1;
+        int total = countries.length * indicators.length * years;
+        int pages = Math.max(1, (total + perPage - 1) / perPage);
+        
+        StringBuilder json = new StringBuilder(Math.min(total, perPage) * 260);
+        json.append("[{\"page\":").append(page).append(",\"pages\":").append(pages)
+            .append(",\"per_page\":").append(perPage).append(",\"total\":").append(total)
+            .append(",\"sourceid\":\"2\",\"lastupdated\":\"").append(LAST_UPDATED).append("\"},[");
+        
+        int from = (page - 1) * perPage;
+        int to = Math.min(total, from + perPage);
+        for (int row = from; row < to; row++) {
+            int series = row / years;
+            String country = countries[series / indicators.length].toUpperCase(Locale.ROOT);
+            String indicator = indicators[series % indicators.length].toUpperCase(Locale.ROOT);
+            int year = endYear - row % years;
+            
+            if (row > from) {
+                json.append(',');
+            }
+            json.append("{\"indicator\":{\"id\":\"").append(indicator).append("\",\"value\":\"")
+                .append(indicator).append("\"},\"country\":{\"id\":\"").append(country)
+                .append("\",\"value\":\"Country ").append(country).append("\"},\"countryiso3code\":\"")
+                .append(country).append("\",\"date\":\"").append(year).append("\",\"value\":");
+            // Same value for the same series and year on every run
+            Random random = new Random((country + indicator).hashCode() * 31L + year);
+            if (random.nextInt(17) == 0) {
+                json.append("null");
+            } else {
+                json.append(String.format(Locale.ROOT, "%.1f", random.nextDouble() * 3e12));
+            }
+            json.append(",\"unit\":\"\",\"obs_status\":\"\",\"decimal\":0}");
+        }
+        json.append("]]");
+        return utf8(json.toString());
+    }
+    
+    private static byte[] listing(String kind, Map<String, String> params) {
+        int total = kind.equals("country") ? 266 : 1500;
+        int perPage = Integer.parseInt(params.getOrDefault("per_page", "50"));
+        int page = Integer.parseInt(params.getOrDefault("page", "1"));
+        int pages = Math.max(1, (total + perPage - 1) / perPage);
+        
+        StringBuilder json = new StringBuilder();
+        json.append("[{\"page\":").append(page).append(",\"pages\":").append(pages)
+            .append(",\"per_page\":").append(perPage).append(",\"total\":").append(total).append("},[");
+        int from = (page - 1) * perPage;
+        for (int i = from; i < Math.min(total, from + perPage); i++) {
+            if (i > from) {
+                json.append(',');
+            }
+            String code = kind.equals("country")
+                ? String.format(Locale.ROOT, "C%02d", i) : "IND." + i;
+            json.append("{\"id\":\"").append(code).append("\",\"name\":\"")
+                .append(kind.equals("country") ? "Country " : "Indicator ").append(i).append("\"}");
+        }
+        json.append("]]");
+        return utf8(json.toString());
+    }
+    
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+    
+    // Saves live responses so they can be replayed exactly
+    static void record(Path dir, String url) throws IOException {
+        Files.createDirectories(dir);
+        URL target = URI.create(url).toURL();
+        HttpURLConnection conn = (HttpURLConnection) target.openConnection();
+        try (InputStream in = conn.getInputStream()) {
+            Files.write(dir.resolve(fixtureName(target.getPath(), target.getQuery())), in.readAllBytes());
+        } finally {
+            conn.disconnect();
+        }
+    }
+    
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("record")) {
+            for (int i = 2; i < args.length; i++) {
+                record(Paths.get(args[1]), args[i]);
+                System.out.println("Recorded " + args[i]);
+            }
+            return;
+        }
+        if (args.length >= 1 && args[0].equals("serve")) {
+            Path dir = args.length > 1 ? Paths.get(args[1]) : null;
+            int port = args.length > 2 ? Integer.parseInt(args[2]) : 8089;
+            long latency = args.length > 3 ? Long.parseLong(args[3]) : 0;
+            FixtureServer server = new FixtureServer(port, latency, dir);
+            server.start();
+            System.out.println("Serving on " + server.getApiRoot()
+                + " and Bedrock on " + server.getBedrockEndpoint());
+            Thread.currentThread().join();
+            return;
+        }
+        System.err.println("Usage: java FixtureServer record <dir> <url>... | serve [dir] [port] [latency-ms]");
+        System.exit(1);
+    }
+}
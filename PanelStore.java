@@ -0,0 +1,364 @@
+// PanelStore.java
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Local country x indicator x year panel kept in a single columnar file
+// and read through a memory mapping. Opening the store only decodes the
+// index; series values are read straight from the mapped pages.
+//
+// File layout (big-endian):
+//   header:  magic, version, series count, index offset (long)
+//   data:    per series, 8-byte aligned:
+//            int count, pad, int[count] years, pad, double[count] values,
+//            long[(count + 63) / 64] missing bits
+//   index:   per series: country code, indicator code, country name
+//            (each as length-prefixed UTF-8), long data offset, int count
+//
+// flush() writes a new file and renames it over the old one while the old
+// one is still mapped. POSIX allows that and keeps existing views readable;
+// Windows refuses to replace a mapped file, so the store is POSIX-only.
+public class PanelStore implements WorldBankDataSource {
+    private static final int MAGIC = 0x57425031; // "WBP1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+    
+    private final Path file;
+    private MappedByteBuffer mapped;
+    private Map<String, IndexEntry> index = Collections.emptyMap();
+    // Series added since the file was last written
+    private final Map<String, PendingSeries> pending = new LinkedHashMap<>();
+    
+    public PanelStore(Path file) throws IOException {
+        this.file = file;
+        if (Files.exists(file)) {
+            open();
+        }
+    }
+    
+    public static Path defaultPath() {
+        return Paths.get(System.getProperty("user.home"), ".worldbank-analyser", "panel.wbp");
+    }
+    
+    private void open() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        
+        if (mapped.getInt(0) != MAGIC || mapped.getInt(4) != VERSION) {
+            throw new IOException("Not a panel store file: " + file);
+        }
+        int count = mapped.getInt(8);
+        ByteBuffer in = mapped.duplicate();
+        in.position((int) mapped.getLong(12));
+        
+        Map<String, IndexEntry> entries = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            String countryCode = readString(in);
+            String indicator = readString(in);
+            String countryName = readString(in);
+            long offset = in.getLong();
+            int size = in.getInt();
+            entries.put(key(countryCode, indicator),
+                new IndexEntry(countryCode, indicator, countryName, (int) offset, size));
+        }
+        index = entries;
+    }
+    
+    // When the file was last written, or 0 if it does not exist yet
+    public long lastModified() throws IOException {
+        return Files.exists(file) ? Files.getLastModifiedTime(file).toMillis() : 0;
+    }
+    
+    public synchronized boolean contains(String countryCode, String indicator) {
+        return index.containsKey(key(countryCode, indicator));
+    }
+    
+    public synchronized Set<String> keys() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+    
+    // Zero-copy view of a stored series, or null if it is not in the file
+    public synchronized MappedSeries getSeries(String countryCode, String indicator) {
+        IndexEntry entry = index.get(key(countryCode, indicator));
+        if (entry == null) {
+            return null;
+        }
+        return new MappedSeries(mapped, entry);
+    }
+    
+    // Copies just the requested window into a WorldBankData
+    @Override
+    public WorldBankData fetchData(String countryCode, String indicator,
+                                   int startYear, int endYear) {
+        MappedSeries series = getSeries(countryCode, indicator);
+        if (series == null) {
+            return null;
+        }
+        
+        WorldBankData data = new WorldBankData();
+        data.setCountryName(series.getCountryName());
+        int from = series.indexOf(startYear);
+        if (from < 0) {
+            from = -from - 1;
+        }
+        for (int i = from; i < series.size() && series.yearAt(i) <= endYear; i++) {
+            data.addEntry(series.yearAt(i), series.isMissing(i) ? null : series.valueAt(i));
+        }
+        return data;
+    }
+    
+    // Queues a series to be written by the next flush(); replaces any stored copy
+    public synchronized void put(String countryCode, String indicator, WorldBankData data) {
+        pending.put(key(countryCode, indicator), new PendingSeries(countryCode, indicator,
+            data.getCountryName(), data.getSeries()));
+    }
+    
+    // Pulls every country x indicator pair through the API and writes the file
+    public void populate(WorldBankAPI api, Collection<String> countryCodes,
+                         Collection<String> indicators, int startYear, int endYear)
+            throws Exception {
+        Map<String, Map<String, WorldBankData>> batch =
+            api.fetchBatch(countryCodes, indicators, startYear, endYear);
+        for (Map.Entry<String, Map<String, WorldBankData>> country : batch.entrySet()) {
+            for (Map.Entry<String, WorldBankData> series : country.getValue().entrySet()) {
+                put(country.getKey(), series.getKey(), series.getValue());
+            }
+        }
+        flush();
+    }
+    
+    // Rewrites the file with the stored series plus the pending ones, then
+    // remaps it. Unchanged series are copied byte for byte from the mapping,
+    // so only the pending ones are ever on the heap.
+    public synchronized void flush() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        
+        List<IndexEntry> kept = new ArrayList<>();
+        for (Map.Entry<String, IndexEntry> entry : index.entrySet()) {
+            if (!pending.containsKey(entry.getKey())) {
+                kept.add(entry.getValue());
+            }
+        }
+        
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        write(temp, mapped, kept, pending.values());
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (FileSystemException e) {
+            Files.deleteIfExists(temp);
+            throw new IOException("Cannot replace the mapped panel file " + file
+                + " (the panel store needs POSIX rename semantics)", e);
+        }
+        
+        pending.clear();
+        open();
+    }
+    
+    // Bytes one series occupies in the data section
+    private static long recordBytes(int size) {
+        return 8 + 4L * (size + size % 2) + 8L * size + 8L * ((size + 63) / 64);
+    }
+    
+    private static void write(Path target, ByteBuffer source, List<IndexEntry> kept,
+                              Collection<PendingSeries> series) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(target), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(kept.size() + series.size());
+            out.writeLong(0); // index offset, patched below
+            out.writeInt(0);  // pad header to 8 bytes
+            
+            long position = HEADER_BYTES;
+            long[] keptOffsets = new long[kept.size()];
+            long[] offsets = new long[series.size()];
+            int n = 0;
+            
+            // Records are position independent, so stored ones move as raw bytes
+            byte[] chunk = new byte[1 << 16];
+            for (IndexEntry entry : kept) {
+                keptOffsets[n++] = position;
+                ByteBuffer record = source.duplicate();
+                long length = recordBytes(entry.size);
+                record.position(entry.offset).limit((int) (entry.offset + length));
+                while (record.hasRemaining()) {
+                    int count = Math.min(chunk.length, record.remaining());
+                    record.get(chunk, 0, count);
+                    out.write(chunk, 0, count);
+                }
+                position += length;
+            }
+            
+            n = 0;
+            for (PendingSeries s : series) {
+                offsets[n++] = position;
+                Series data = s.series;
+                out.writeInt(data.size());
+                out.writeInt(0);
+                for (int i = 0; i < data.size(); i++) {
+                    out.writeInt(data.yearAt(i));
+                }
+                if (data.size() % 2 != 0) {
+                    out.writeInt(0);
+                }
+                for (int i = 0; i < data.size(); i++) {
+                    out.writeDouble(data.valueAt(i));
+                }
+                long[] missing = data.missing().toLongArray();
+                int words = (data.size() + 63) / 64;
+                for (int w = 0; w < words; w++) {
+                    out.writeLong(w < missing.length ? missing[w] : 0);
+                }
+                position += recordBytes(data.size());
+            }
+            
+            long indexOffset = position;
+            n = 0;
+            for (IndexEntry entry : kept) {
+                writeString(out, entry.countryCode);
+                writeString(out, entry.indicator);
+                writeString(out, entry.countryName);
+                out.writeLong(keptOffsets[n++]);
+                out.writeInt(entry.size);
+            }
+            n = 0;
+            for (PendingSeries s : series) {
+                writeString(out, s.countryCode);
+                writeString(out, s.indicator);
+                writeString(out, s.countryName);
+                out.writeLong(offsets[n++]);
+                out.writeInt(s.series.size());
+            }
+            out.flush();
+            
+            try (FileChannel channel = FileChannel.open(target, StandardOpenOption.WRITE)) {
+                ByteBuffer patch = ByteBuffer.allocate(8).putLong(0, indexOffset);
+                channel.write(patch, 12);
+            }
+        }
+    }
+    
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private static String key(String countryCode, String indicator) {
+        return countryCode.toUpperCase() + "|" + indicator.toUpperCase();
+    }
+    
+    private static class IndexEntry {
+        private final String countryCode;
+        private final String indicator;
+        private final String countryName;
+        private final int offset;
+        private final int size;
+        
+        IndexEntry(String countryCode, String indicator, String countryName, int offset, int size) {
+            this.countryCode = countryCode;
+            this.indicator = indicator;
+            this.countryName = countryName;
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+    
+    private static class PendingSeries {
+        private final String countryCode;
+        private final String indicator;
+        private final String countryName;
+        private final Series series;
+        
+        PendingSeries(String countryCode, String indicator, String countryName, Series series) {
+            this.countryCode = countryCode;
+            this.indicator = indicator;
+            this.countryName = countryName;
+            this.series = series;
+        }
+    }
+    
+    // Reads a series in place from the mapped file, oldest year first
+    public static class MappedSeries {
+        private final ByteBuffer buffer;
+        private final IndexEntry entry;
+        private final int yearsOffset;
+        private final int valuesOffset;
+        private final int missingOffset;
+        
+        MappedSeries(ByteBuffer buffer, IndexEntry entry) {
+            this.buffer = buffer;
+            this.entry = entry;
+            this.yearsOffset = entry.offset + 8;
+            this.valuesOffset = yearsOffset + 4 * (entry.size + entry.size % 2);
+            this.missingOffset = valuesOffset + 8 * entry.size;
+        }
+        
+        public String getCountryName() {
+            return entry.countryName;
+        }
+        
+        public int size() {
+            return entry.size;
+        }
+        
+        public int yearAt(int index) {
+            return buffer.getInt(yearsOffset + 4 * index);
+        }
+        
+        public double valueAt(int index) {
+            return buffer.getDouble(valuesOffset + 8 * index);
+        }
+        
+        public boolean isMissing(int index) {
+            long word = buffer.getLong(missingOffset + 8 * (index >>> 6));
+            return (word & (1L << index)) != 0;
+        }
+        
+        // Binary search over the mapped years, same contract as Arrays.binarySearch
+        public int indexOf(int year) {
+            int low = 0;
+            int high = entry.size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int midYear = yearAt(mid);
+                if (midYear < year) {
+                    low = mid + 1;
+                } else if (midYear > year) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+    }
+}
@@ -0,0 +1,315 @@
+// PromptBuilder.java
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Locale;
+
+// Turns a series into a compact prompt that fits a token budget. Values are
+// rounded to a few significant digits, summary statistics are computed up
+// front, and long series are downsampled to the points that carry the shape
+// (first, last and the extremes are always kept).
+public class PromptBuilder {
+    private static final int DEFAULT_TOKEN_BUDGET = 1000;
+    private static final int DEFAULT_SIGNIFICANT_DIGITS = 4;
+    private static final int MAX_BREAKPOINTS = 3;
+    private static final int MIN_TABLE_POINTS = 8;
+    // Rough average for mixed English text and numbers
+    private static final double CHARS_PER_TOKEN = 3.5;
+    
+    private final int tokenBudget;
+    private final MathContext precision;
+    
+    public PromptBuilder() {
+        this(Integer.getInteger("bedrock.promptTokens", DEFAULT_TOKEN_BUDGET),
+            DEFAULT_SIGNIFICANT_DIGITS);
+    }
+    
+    public PromptBuilder(int tokenBudget, int significantDigits) {
+        this.tokenBudget = tokenBudget;
+        this.precision = new MathContext(significantDigits);
+    }
+    
+    public int getTokenBudget() {
+        return tokenBudget;
+    }
+    
+    public static int estimateTokens(String text) {
+        return (int) Math.ceil(text.length() / CHARS_PER_TOKEN);
+    }
+    
+    public Prompt build(WorldBankData data, String question, String indicatorName) {
+        Series series = data.getSeries();
+        
+        // Present observations only, oldest first
+        int[] years = new int[series.size()];
+        double[] values = new double[series.size()];
+        int n = 0;
+        for (int i = 0; i < series.size(); i++) {
+            if (!series.isMissing(i)) {
+                years[n] = series.yearAt(i);
+                values[n] = series.valueAt(i);
+                n++;
+            }
+        }
+        years = Arrays.copyOf(years, n);
+        values = Arrays.copyOf(values, n);
+        
+        String header = "Country: " + data.getCountryName() + "\n"
+            + "Indicator: " + indicatorName + "\n";
+        String summary = summary(years, values);
+        
+        // Keep everything if it fits; otherwise shrink the table until it does
+        int[] keep = allIndexes(n);
+        String prompt = render(header, summary, table(years, values, keep), question, n, n);
+        int target = n;
+        while (estimateTokens(prompt) > tokenBudget && target > MIN_TABLE_POINTS) {
+            target = Math.max(MIN_TABLE_POINTS, target * 2 / 3);
+            keep = downsample(years, values, target);
+            prompt = render(header, summary, table(years, values, keep), question, keep.length, n);
+        }
+        
+        return new Prompt(prompt, estimateTokens(prompt), keep.length, n);
+    }
+    
+    private String render(String header, String summary, String table, String question,
+                          int shown, int total) {
+        String note = shown < total
+            ? "Table shows " + shown + " of " + total + " years (downsampled, extremes kept).\n"
+            : "";
+        return String.format(
+            "\n\nHuman: I have the following World Bank data:\n\n%s\n%s\n%s%s\n\n" +
+            "User Question: %s\n\n" +
+            "Please provide a clear, insightful analysis based on this data.\n\n" +
+            "Assistant:",
+            header, summary, note, table, question
+        );
+    }
+    
+    private String summary(int[] years, double[] values) {
+        int n = years.length;
+        if (n == 0) {
+            return "No observations.\n";
+        }
+        
+        int min = 0;
+        int max = 0;
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            if (values[i] < values[min]) {
+                min = i;
+            }
+            if (values[i] > values[max]) {
+                max = i;
+            }
+            sum += values[i];
+        }
+        
+        StringBuilder out = new StringBuilder();
+        out.append("Summary: ").append(n).append(" obs ")
+            .append(years[0]).append('-').append(years[n - 1])
+            .append("; first ").append(round(values[0]))
+            .append(", last ").append(round(values[n - 1]))
+            .append("; min ").append(round(values[min])).append(" (").append(years[min]).append(')')
+            .append("; max ").append(round(values[max])).append(" (").append(years[max]).append(')')
+            .append("; mean ").append(round(sum / n));
+        
+        int span = years[n - 1] - years[0];
+        if (span > 0 && values[0] > 0 && values[n - 1] > 0) {
+            double cagr = Math.pow(values[n - 1] / values[0], 1.0 / span) - 1;
+            out.append("; CAGR ").append(round(cagr * 100)).append('%');
+        }
+        out.append('\n');
+        
+        int[] breakpoints = breakpoints(values);
+        if (breakpoints.length > 0) {
+            out.append("Trend reversals:");
+            for (int b : breakpoints) {
+                out.append(' ').append(years[b]).append('=').append(round(values[b]));
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+    
+    // Local peaks and troughs with the largest swing to their neighbours
+    private static int[] breakpoints(double[] values) {
+        int n = values.length;
+        int[] candidates = new int[n];
+        double[] swing = new double[n];
+        int count = 0;
+        for (int i = 1; i < n - 1; i++) {
+            double before = values[i] - values[i - 1];
+            double after = values[i + 1] - values[i];
+            if (before * after < 0) {
+                candidates[count] = i;
+                swing[count] = Math.abs(before) + Math.abs(after);
+                count++;
+            }
+        }
+        
+        int take = Math.min(MAX_BREAKPOINTS, count);
+        int[] result = new int[take];
+        boolean[] used = new boolean[count];
+        for (int k = 0; k < take; k++) {
+            int best = -1;
+            for (int c = 0; c < count; c++) {
+                if (!used[c] && (best < 0 || swing[c] > swing[best])) {
+                    best = c;
+                }
+            }
+            used[best] = true;
+            result[k] = candidates[best];
+        }
+        Arrays.sort(result);
+        return result;
+    }
+    
+    private String table(int[] years, double[] values, int[] keep) {
+        StringBuilder out = new StringBuilder(keep.length * 12);
+        out.append("year,value\n");
+        for (int i : keep) {
+            out.append(years[i]).append(',').append(round(values[i])).append('\n');
+        }
+        return out.toString();
+    }
+    
+    // Largest-Triangle-Three-Buckets, then the global extremes are added back
+    static int[] downsample(int[] years, double[] values, int target) {
+        int n = years.length;
+        if (target >= n || target < 3) {
+            return allIndexes(n);
+        }
+        
+        int[] picked = new int[target + 2];
+        int count = 0;
+        picked[count++] = 0;
+        
+        double bucketSize = (double) (n - 2) / (target - 2);
+        int previous = 0;
+        for (int b = 0; b < target - 2; b++) {
+            int start = (int) (b * bucketSize) + 1;
+            int end = Math.min((int) ((b + 1) * bucketSize) + 1, n - 1);
+            
+            // Average of the next bucket is the third triangle vertex
+            int nextStart = end;
+            int nextEnd = Math.min((int) ((b + 2) * bucketSize) + 1, n);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += years[i];
+                avgY += values[i];
+            }
+            int nextCount = Math.max(1, nextEnd - nextStart);
+            avgX /= nextCount;
+            avgY /= nextCount;
+            
+            int best = start;
+            double bestArea = -1;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((years[previous] - avgX) * (values[i] - values[previous])
+                    - (years[previous] - years[i]) * (avgY - values[previous]));
+                if (area > bestArea) {
+                    bestArea = area;
+                    best = i;
+                }
+            }
+            picked[count++] = best;
+            previous = best;
+        }
+        picked[count++] = n - 1;
+        
+        int min = 0;
+        int max = 0;
+        for (int i = 1; i < n; i++) {
+            if (values[i] < values[min]) {
+                min = i;
+            }
+            if (values[i] > values[max]) {
+                max = i;
+            }
+        }
+        picked[count++] = min;
+        picked[count++] = max;
+        
+        int[] sorted = Arrays.copyOf(picked, count);
+        Arrays.sort(sorted);
+        int unique = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (unique == 0 || sorted[i] != sorted[unique - 1]) {
+                sorted[unique++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, unique);
+    }
+    
+    private static int[] allIndexes(int n) {
+        int[] indexes = new int[n];
+        for (int i = 0; i < n; i++) {
+            indexes[i] = i;
+        }
+        return indexes;
+    }
+    
+    // Significant digits with K/M/B/T suffixes, e.g. 21433226000000 -> 21.43T
+    String round(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return String.valueOf(value);
+        }
+        
+        double abs = Math.abs(value);
+        String suffix = "";
+        if (abs >= 1e12) {
+            value /= 1e12;
+            suffix = "T";
+        } else if (abs >= 1e9) {
+            value /= 1e9;
+            suffix = "B";
+        } else if (abs >= 1e6) {
+            value /= 1e6;
+            suffix = "M";
+        } else if (abs >= 1e4) {
+            value /= 1e3;
+            suffix = "K";
+        }
+        
+        BigDecimal rounded = new BigDecimal(value).round(precision).stripTrailingZeros();
+        String text = rounded.scale() < 0 ? rounded.toBigInteger().toString() : rounded.toPlainString();
+        return text + suffix;
+    }
+    
+    public static class Prompt {
+        private final String text;
+        private final int estimatedTokens;
+        private final int pointsShown;
+        private final int pointsTotal;
+        
+        Prompt(String text, int estimatedTokens, int pointsShown, int pointsTotal) {
+            this.text = text;
+            this.estimatedTokens = estimatedTokens;
+            this.pointsShown = pointsShown;
+            this.pointsTotal = pointsTotal;
+        }
+        
+        public String getText() {
+            return text;
+        }
+        
+        public int getEstimatedTokens() {
+            return estimatedTokens;
+        }
+        
+        public int getPointsShown() {
+            return pointsShown;
+        }
+        
+        public int getPointsTotal() {
+            return pointsTotal;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "~%d prompt tokens, %d/%d points",
+                estimatedTokens, pointsShown, pointsTotal);
+        }
+    }
+}
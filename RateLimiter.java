@@ -0,0 +1,50 @@
+// RateLimiter.java
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Token bucket: refills at a steady rate up to a burst size, and callers
+// block until a token is available.
+public class RateLimiter {
+    private final double permitsPerSecond;
+    private final double burst;
+    private double tokens;
+    private long lastRefillNanos;
+    
+    private final AtomicLong throttledAcquires = new AtomicLong();
+    
+    public RateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate and burst must be positive");
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.tokens = burst;
+        this.lastRefillNanos = System.nanoTime();
+    }
+    
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            throttledAcquires.incrementAndGet();
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+    
+    // Takes a token, going into debt if none is left, and returns how long
+    // the caller has to wait for its token to become valid
+    private synchronized long reserve() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1e9 * permitsPerSecond);
+        lastRefillNanos = now;
+        
+        tokens -= 1;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) (-tokens / permitsPerSecond * 1e9);
+    }
+    
+    public long getThrottledAcquires() {
+        return throttledAcquires.get();
+    }
+}
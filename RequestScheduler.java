@@ -0,0 +1,303 @@
+// RequestScheduler.java
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+// Single queue for the GUI's background requests. Requests belong to a
+// channel ("fetch", "analyze", ...) and each new one gets the channel's
+// next generation number: whatever the channel was doing before is
+// superseded and cancelled, down to the HTTP or model call it started.
+// A request with the same key as the channel's live request joins it
+// instead of running twice.
+//
+// At most maxConcurrent requests run at once. Interactive requests are
+// dispatched ahead of background ones, and background work never takes
+// the last slot, so a click is never queued behind a refresh.
+public class RequestScheduler {
+    private static final int DEFAULT_MAX_CONCURRENT = 4;
+    
+    public enum Priority {
+        INTERACTIVE,
+        BACKGROUND
+    }
+    
+    private final int maxConcurrent;
+    private final Executor callbackExecutor;
+    private final ExecutorService workers;
+    private final PriorityQueue<Request<?>> pending = new PriorityQueue<>(
+        Comparator.<Request<?>, Priority>comparing(request -> request.priority)
+            .thenComparingLong(request -> request.sequence));
+    private final Map<String, Request<?>> current = new HashMap<>();
+    private final Map<String, Long> generations = new HashMap<>();
+    private int running;
+    private long sequence;
+    
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong merged = new AtomicLong();
+    private final AtomicLong superseded = new AtomicLong();
+    
+    public RequestScheduler(Executor callbackExecutor) {
+        this(Integer.getInteger("worldbank.schedulerConcurrency", DEFAULT_MAX_CONCURRENT),
+            callbackExecutor);
+    }
+    
+    // Callbacks registered with whenDone run on callbackExecutor
+    // (SwingUtilities::invokeLater in the GUI)
+    public RequestScheduler(int maxConcurrent, Executor callbackExecutor) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.callbackExecutor = callbackExecutor;
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "request-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Blocking work, run on a scheduler thread. Cancelling interrupts it.
+    public <T> Request<T> submit(String channel, String key, Priority priority, Callable<T> work) {
+        return enqueue(new Request<>(channel, key, priority, work, null));
+    }
+    
+    // Asynchronous work; the returned future is cancelled with the request
+    public <T> Request<T> submitAsync(String channel, String key, Priority priority,
+                                      Supplier<CompletableFuture<T>> work) {
+        return enqueue(new Request<>(channel, key, priority, null, work));
+    }
+    
+    @SuppressWarnings("unchecked")
+    private synchronized <T> Request<T> enqueue(Request<T> request) {
+        submitted.incrementAndGet();
+        Request<?> live = current.get(request.channel);
+        if (live != null && !live.result.isDone()) {
+            if (request.key != null && request.key.equals(live.key)) {
+                merged.incrementAndGet();
+                // A duplicate asked for at a higher priority promotes the original
+                if (request.priority.compareTo(live.priority) < 0 && pending.remove(live)) {
+                    live.priority = request.priority;
+                    pending.add(live);
+                    dispatch();
+                }
+                return (Request<T>) live;
+            }
+            superseded.incrementAndGet();
+            live.cancel();
+        }
+        
+        long generation = generations.merge(request.channel, 1L, Long::sum);
+        request.generation = generation;
+        request.sequence = ++sequence;
+        current.put(request.channel, request);
+        pending.add(request);
+        dispatch();
+        return request;
+    }
+    
+    private synchronized void dispatch() {
+        while (!pending.isEmpty()) {
+            Request<?> next = pending.peek();
+            int limit = next.priority == Priority.INTERACTIVE ? maxConcurrent : Math.max(1, maxConcurrent - 1);
+            if (running >= limit) {
+                return;
+            }
+            pending.poll();
+            running++;
+            workers.execute(next::run);
+        }
+    }
+    
+    private synchronized void finished() {
+        running--;
+        dispatch();
+    }
+    
+    private synchronized void dequeue(Request<?> request) {
+        pending.remove(request);
+    }
+    
+    public synchronized boolean isCurrent(Request<?> request) {
+        return current.get(request.channel) == request;
+    }
+    
+    // Cancels the channel's live request, if any
+    public synchronized void cancel(String channel) {
+        Request<?> live = current.get(channel);
+        if (live != null && !live.result.isDone()) {
+            superseded.incrementAndGet();
+            live.cancel();
+        }
+        current.remove(channel);
+    }
+    
+    public synchronized int getPending() {
+        return pending.size();
+    }
+    
+    public synchronized int getRunning() {
+        return running;
+    }
+    
+    public String getStats() {
+        return String.format("submitted=%d merged=%d superseded=%d running=%d pending=%d",
+            submitted.get(), merged.get(), superseded.get(), getRunning(), getPending());
+    }
+    
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+    
+    public class Request<T> {
+        private final String channel;
+        private final String key;
+        private final Callable<T> work;
+        private final Supplier<CompletableFuture<T>> asyncWork;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private volatile Priority priority;
+        private long generation;
+        private long sequence;
+        // Thread running blocking work, or the future of async work
+        private Thread runner;
+        private CompletableFuture<T> call;
+        
+        Request(String channel, String key, Priority priority, Callable<T> work,
+                Supplier<CompletableFuture<T>> asyncWork) {
+            this.channel = Objects.requireNonNull(channel);
+            this.key = key;
+            this.priority = priority;
+            this.work = work;
+            this.asyncWork = asyncWork;
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    abort();
+                }
+            });
+        }
+        
+        public String getChannel() {
+            return channel;
+        }
+        
+        public String getKey() {
+            return key;
+        }
+        
+        public long getGeneration() {
+            return generation;
+        }
+        
+        public CompletableFuture<T> getFuture() {
+            return result;
+        }
+        
+        // Still the newest request in its channel
+        public boolean isCurrent() {
+            return RequestScheduler.this.isCurrent(this);
+        }
+        
+        public void cancel() {
+            result.cancel(true);
+        }
+        
+        // Runs the callback on the callback executor with the result or the
+        // failure's cause, unless the request was cancelled or superseded by
+        // the time it gets there
+        public Request<T> whenDone(BiConsumer<T, Throwable> callback) {
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    return;
+                }
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                callbackExecutor.execute(() -> {
+                    if (isCurrent()) {
+                        callback.accept(value, cause);
+                    }
+                });
+            });
+            return this;
+        }
+        
+        private void run() {
+            if (result.isDone()) {
+                finished();
+                return;
+            }
+            if (asyncWork != null) {
+                startAsync();
+                return;
+            }
+            
+            synchronized (this) {
+                runner = Thread.currentThread();
+            }
+            try {
+                if (!result.isDone()) {
+                    result.complete(work.call());
+                }
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                }
+                // Don't hand a pooled thread on with our cancellation still set
+                Thread.interrupted();
+                finished();
+            }
+        }
+        
+        // The slot stays taken until the async call completes
+        private void startAsync() {
+            CompletableFuture<T> started;
+            try {
+                started = asyncWork.get();
+            } catch (RuntimeException e) {
+                started = CompletableFuture.failedFuture(e);
+            }
+            synchronized (this) {
+                call = started;
+            }
+            started.whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+                finished();
+            });
+            if (result.isCancelled()) {
+                started.cancel(true);
+            }
+        }
+        
+        private void abort() {
+            dequeue(this);
+            CompletableFuture<T> started;
+            synchronized (this) {
+                if (runner != null) {
+                    runner.interrupt();
+                }
+                started = call;
+            }
+            // Outside the lock: cancelling runs the call's completion handlers
+            if (started != null) {
+                started.cancel(true);
+            }
+        }
+        
+        @Override
+        public String toString() {
+            return channel + "#" + generation + (key == null ? "" : " " + key);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+// Series.java
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Compact observation series: primitive year and value columns sorted by
+// year (oldest first), with a bitset marking years that have no value.
+// A missing year's value is always NaN and a present value never is, so
+// bulk loops can test the value instead of the bitset.
+public final class Series {
+    private static final int[] NO_YEARS = new int[0];
+    private static final double[] NO_VALUES = new double[0];
+    
+    private final int[] years;
+    private final double[] values;
+    private final BitSet missing;
+    
+    private Series(int[] years, double[] values, BitSet missing) {
+        this.years = years;
+        this.values = values;
+        this.missing = missing;
+    }
+    
+    public static Series empty() {
+        return new Series(NO_YEARS, NO_VALUES, new BitSet());
+    }
+    
+    public int size() {
+        return years.length;
+    }
+    
+    public int yearAt(int index) {
+        return years[index];
+    }
+    
+    public double valueAt(int index) {
+        return values[index];
+    }
+    
+    public boolean isMissing(int index) {
+        return missing.get(index);
+    }
+    
+    // Index of the year, or a negative insertion point as in Arrays.binarySearch
+    public int indexOf(int year) {
+        return Arrays.binarySearch(years, year);
+    }
+    
+    // Value for the year, or null if the year is absent or has no value
+    public Double valueForYear(int year) {
+        int index = indexOf(year);
+        if (index < 0 || missing.get(index)) {
+            return null;
+        }
+        return values[index];
+    }
+    
+    // Read-only access for bulk loops over the columns
+    int[] years() {
+        return years;
+    }
+    
+    double[] values() {
+        return values;
+    }
+    
+    BitSet missing() {
+        return missing;
+    }
+    
+    // Collects observations in any order and sorts them once in build()
+    public static class Builder {
+        private int[] years = new int[16];
+        private double[] values = new double[16];
+        private final BitSet missing = new BitSet();
+        private int size;
+        
+        public void add(int year, double value) {
+            if (Double.isNaN(value)) {
+                addMissing(year);
+                return;
+            }
+            ensureCapacity(size + 1);
+            years[size] = year;
+            values[size] = value;
+            size++;
+        }
+        
+        public void addMissing(int year) {
+            ensureCapacity(size + 1);
+            years[size] = year;
+            values[size] = Double.NaN;
+            missing.set(size);
+            size++;
+        }
+        
+        public void addAll(Series series) {
+            ensureCapacity(size + series.size());
+            for (int i = 0; i < series.size(); i++) {
+                years[size] = series.years[i];
+                values[size] = series.values[i];
+                if (series.missing.get(i)) {
+                    missing.set(size);
+                }
+                size++;
+            }
+        }
+        
+        public int size() {
+            return size;
+        }
+        
+        private void ensureCapacity(int capacity) {
+            if (capacity > years.length) {
+                int newLength = Math.max(capacity, years.length * 2);
+                years = Arrays.copyOf(years, newLength);
+                values = Arrays.copyOf(values, newLength);
+            }
+        }
+        
+        public Series build() {
+            long start = System.nanoTime();
+            Series series = sort();
+            Diagnostics.record(Diagnostics.Stage.SORT, System.nanoTime() - start, 0, null);
+            return series;
+        }
+        
+        private Series sort() {
+            int[] sortedYears = Arrays.copyOf(years, size);
+            double[] sortedValues = Arrays.copyOf(values, size);
+            BitSet sortedMissing = (BitSet) missing.clone();
+            
+            if (isAscending(sortedYears)) {
+                return new Series(sortedYears, sortedValues, sortedMissing);
+            }
+            
+            // The API returns newest first, so a plain reversal is the common case
+            if (isDescending(sortedYears)) {
+                BitSet reversedMissing = new BitSet(size);
+                for (int i = 0; i < size; i++) {
+                    sortedYears[i] = years[size - 1 - i];
+                    sortedValues[i] = values[size - 1 - i];
+                    if (missing.get(size - 1 - i)) {
+                        reversedMissing.set(i);
+                    }
+                }
+                return new Series(sortedYears, sortedValues, reversedMissing);
+            }
+            
+            // General case: sort (year, original index) pairs packed into longs.
+            // Ties keep insertion order, so the sort is stable.
+            long[] order = new long[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = ((long) years[i] << 32) | i;
+            }
+            Arrays.sort(order);
+            
+            BitSet orderedMissing = new BitSet(size);
+            for (int i = 0; i < size; i++) {
+                int from = (int) order[i];
+                sortedYears[i] = years[from];
+                sortedValues[i] = values[from];
+                if (missing.get(from)) {
+                    orderedMissing.set(i);
+                }
+            }
+            return new Series(sortedYears, sortedValues, orderedMissing);
+        }
+        
+        private static boolean isAscending(int[] years) {
+            for (int i = 1; i < years.length; i++) {
+                if (years[i - 1] > years[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private static boolean isDescending(int[] years) {
+            for (int i = 1; i < years.length; i++) {
+                if (years[i - 1] < years[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
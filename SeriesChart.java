@@ -0,0 +1,139 @@
+// SeriesChart.java
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import javax.swing.JComponent;
+
+// Line chart of a Series that only draws what is on screen. Points are
+// reduced to at most one vertical min/max stroke per pixel column, so a
+// paint costs the same for a hundred points or a million.
+public class SeriesChart extends JComponent {
+    private static final long serialVersionUID = 1L;
+    private static final int MARGIN = 30;
+    
+    private Series series = Series.empty();
+    private double minValue;
+    private double maxValue;
+    // Scratch columns reused between paints
+    private int[] columnMin = new int[0];
+    private int[] columnMax = new int[0];
+    private int[] columnFirst = new int[0];
+    private int[] columnLast = new int[0];
+    
+    public SeriesChart() {
+        setPreferredSize(new Dimension(400, 250));
+        setBackground(Color.WHITE);
+        setOpaque(true);
+    }
+    
+    public void setSeries(Series series) {
+        this.series = series;
+        minValue = Double.POSITIVE_INFINITY;
+        maxValue = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < series.size(); i++) {
+            if (!series.isMissing(i)) {
+                minValue = Math.min(minValue, series.valueAt(i));
+                maxValue = Math.max(maxValue, series.valueAt(i));
+            }
+        }
+        repaint();
+    }
+    
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g;
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g2.setColor(getBackground());
+        g2.fillRect(clip.x, clip.y, clip.width, clip.height);
+        
+        int plotWidth = getWidth() - 2 * MARGIN;
+        int plotHeight = getHeight() - 2 * MARGIN;
+        if (series.size() < 2 || plotWidth <= 0 || plotHeight <= 0 || minValue > maxValue) {
+            return;
+        }
+        
+        g2.setColor(Color.GRAY);
+        g2.drawLine(MARGIN, MARGIN + plotHeight, MARGIN + plotWidth, MARGIN + plotHeight);
+        g2.drawLine(MARGIN, MARGIN, MARGIN, MARGIN + plotHeight);
+        g2.drawString(String.valueOf(series.yearAt(0)), MARGIN, getHeight() - 8);
+        String lastYear = String.valueOf(series.yearAt(series.size() - 1));
+        g2.drawString(lastYear, MARGIN + plotWidth - g2.getFontMetrics().stringWidth(lastYear),
+            getHeight() - 8);
+        
+        g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2.setColor(new Color(0x1f77b4));
+        drawDecimated(g2, clip, plotWidth, plotHeight);
+    }
+    
+    // Buckets the points inside the clip into pixel columns, then draws each
+    // column's min-max span and joins neighbouring columns end to start
+    private void drawDecimated(Graphics2D g2, Rectangle clip, int plotWidth, int plotHeight) {
+        int firstYear = series.yearAt(0);
+        double yearSpan = Math.max(1, series.yearAt(series.size() - 1) - firstYear);
+        double valueSpan = maxValue - minValue == 0 ? 1 : maxValue - minValue;
+        
+        int fromColumn = Math.max(0, clip.x - MARGIN - 1);
+        int toColumn = Math.min(plotWidth, clip.x + clip.width - MARGIN + 1);
+        if (fromColumn > toColumn) {
+            return;
+        }
+        ensureColumns(plotWidth + 1);
+        for (int c = fromColumn; c <= toColumn; c++) {
+            columnMin[c] = Integer.MAX_VALUE;
+            columnMax[c] = Integer.MIN_VALUE;
+        }
+        
+        // Only the points whose x falls in the visible columns (plus one either side)
+        int fromYear = firstYear + (int) Math.floor(fromColumn * yearSpan / plotWidth);
+        int start = series.indexOf(fromYear);
+        start = Math.max(0, (start < 0 ? -start - 1 : start) - 1);
+        
+        for (int i = start; i < series.size(); i++) {
+            int column = (int) Math.round((series.yearAt(i) - firstYear) * plotWidth / yearSpan);
+            if (column > toColumn + 1) {
+                break;
+            }
+            if (series.isMissing(i) || column < fromColumn || column > toColumn) {
+                continue;
+            }
+            int y = MARGIN + plotHeight
+                - (int) Math.round((series.valueAt(i) - minValue) * plotHeight / valueSpan);
+            if (columnMin[column] == Integer.MAX_VALUE) {
+                columnFirst[column] = y;
+            }
+            columnLast[column] = y;
+            columnMin[column] = Math.min(columnMin[column], y);
+            columnMax[column] = Math.max(columnMax[column], y);
+        }
+        
+        int previousColumn = -1;
+        for (int c = fromColumn; c <= toColumn; c++) {
+            if (columnMin[c] == Integer.MAX_VALUE) {
+                continue;
+            }
+            int x = MARGIN + c;
+            if (previousColumn >= 0) {
+                g2.drawLine(MARGIN + previousColumn, columnLast[previousColumn], x, columnFirst[c]);
+            }
+            if (columnMax[c] > columnMin[c]) {
+                g2.drawLine(x, columnMin[c], x, columnMax[c]);
+            }
+            previousColumn = c;
+        }
+    }
+    
+    private void ensureColumns(int count) {
+        if (columnMin.length < count) {
+            columnMin = new int[count];
+            columnMax = new int[count];
+            columnFirst = new int[count];
+            columnLast = new int[count];
+        }
+    }
+}
@@ -0,0 +1,150 @@
+// SeriesStore.java
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Year-indexed observations per (country, indicator), so that overlapping
+// year ranges are answered from what we already hold.
+public class SeriesStore {
+    private final Map<String, StoredSeries> series = new ConcurrentHashMap<>();
+    
+    public StoredSeries getOrCreate(String countryCode, String indicator) {
+        return series.computeIfAbsent(key(countryCode, indicator), k -> new StoredSeries());
+    }
+    
+    public StoredSeries get(String countryCode, String indicator) {
+        return series.get(key(countryCode, indicator));
+    }
+    
+    public void clear() {
+        series.clear();
+    }
+    
+    // COUNTRY|INDICATOR keys of every series held
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(series.keySet());
+    }
+    
+    private static String key(String countryCode, String indicator) {
+        return countryCode.toUpperCase() + "|" + indicator.toUpperCase();
+    }
+    
+    // Values are held in a dense array indexed by (year - firstYear)
+    public static class StoredSeries {
+        private String countryName;
+        private int firstYear;
+        private double[] values = new double[0];
+        // Years the API returned a row for, and rows whose value was null
+        private final BitSet present = new BitSet();
+        private final BitSet missing = new BitSet();
+        // Years we have asked the API for, whether or not it had a row.
+        // Indexed by the year itself, independent of firstYear.
+        private final BitSet covered = new BitSet();
+        
+        // Contiguous [start, end] year ranges not yet fetched, in ascending order
+        public synchronized List<int[]> missingRanges(int startYear, int endYear) {
+            List<int[]> gaps = new ArrayList<>();
+            int year = covered.nextClearBit(startYear);
+            
+            while (year <= endYear) {
+                int nextCovered = covered.nextSetBit(year);
+                int gapEnd = (nextCovered < 0 || nextCovered > endYear)
+                    ? endYear : nextCovered - 1;
+                gaps.add(new int[] {year, gapEnd});
+                year = covered.nextClearBit(gapEnd + 1);
+            }
+            return gaps;
+        }
+        
+        public synchronized void merge(int startYear, int endYear, WorldBankData data) {
+            if (data == null) {
+                return;
+            }
+            if (data.getCountryName() != null) {
+                countryName = data.getCountryName();
+            }
+            
+            Series incoming = data.getSeries();
+            if (incoming.size() > 0) {
+                ensureRange(incoming.yearAt(0), incoming.yearAt(incoming.size() - 1));
+            }
+            
+            // The fetch covered the whole range, so a year it no longer
+            // returns (a revision dropped it) must not keep its old value
+            int from = Math.max(startYear, firstYear) - firstYear;
+            int to = Math.min(endYear, firstYear + values.length - 1) - firstYear;
+            if (from <= to) {
+                present.clear(from, to + 1);
+                missing.clear(from, to + 1);
+            }
+            for (int i = 0; i < incoming.size(); i++) {
+                int index = incoming.yearAt(i) - firstYear;
+                present.set(index);
+                missing.set(index, incoming.isMissing(i));
+                values[index] = incoming.valueAt(i);
+            }
+            covered.set(startYear, endYear + 1);
+        }
+        
+        private void ensureRange(int fromYear, int toYear) {
+            if (values.length == 0) {
+                firstYear = fromYear;
+                values = new double[toYear - fromYear + 1];
+                return;
+            }
+            
+            int newFirst = Math.min(firstYear, fromYear);
+            int newLast = Math.max(firstYear + values.length - 1, toYear);
+            if (newFirst == firstYear && newLast == firstYear + values.length - 1) {
+                return;
+            }
+            
+            int shift = firstYear - newFirst;
+            double[] grown = new double[newLast - newFirst + 1];
+            System.arraycopy(values, 0, grown, shift, values.length);
+            values = grown;
+            if (shift > 0) {
+                shiftRight(present, shift);
+                shiftRight(missing, shift);
+            }
+            firstYear = newFirst;
+        }
+        
+        private static void shiftRight(BitSet bits, int shift) {
+            BitSet shifted = new BitSet();
+            for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+                shifted.set(i + shift);
+            }
+            bits.clear();
+            bits.or(shifted);
+        }
+        
+        // {first, last} year ever fetched, or null if nothing has been
+        public synchronized int[] coveredSpan() {
+            if (covered.isEmpty()) {
+                return null;
+            }
+            return new int[] {covered.nextSetBit(0), covered.length() - 1};
+        }
+        
+        public synchronized boolean covers(int startYear, int endYear) {
+            return covered.nextClearBit(startYear) > endYear;
+        }
+        
+        public synchronized WorldBankData slice(int startYear, int endYear) {
+            WorldBankData data = new WorldBankData();
+            data.setCountryName(countryName);
+            
+            int from = Math.max(0, startYear - firstYear);
+            int to = Math.min(values.length - 1, endYear - firstYear);
+            for (int i = present.nextSetBit(from); i >= 0 && i <= to; i = present.nextSetBit(i + 1)) {
+                data.addEntry(firstYear + i, missing.get(i) ? null : values[i]);
+            }
+            return data;
+        }
+    }
+}
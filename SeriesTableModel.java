@@ -0,0 +1,119 @@
+// SeriesTableModel.java
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.table.AbstractTableModel;
+
+// Table rows read straight from one or more Series, newest year first.
+// Nothing is formatted until JTable asks for a visible cell, so the cost of
+// showing a result no longer grows with its size.
+public class SeriesTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final String[] COLUMNS = {"Country", "Year", "Value"};
+    private static final DecimalFormatSymbols SYMBOLS = DecimalFormatSymbols.getInstance(Locale.US);
+    
+    private final List<String> labels = new ArrayList<>();
+    private final List<Series> series = new ArrayList<>();
+    // starts[k] is the first row of series k; one extra entry holds the total
+    private int[] starts = {0};
+    private String indicatorName = "";
+    
+    // Formatters are not thread safe; the model is only used on the EDT
+    private final DecimalFormat money = new DecimalFormat("$#,##0", SYMBOLS);
+    private final DecimalFormat scaled = new DecimalFormat("0.00", SYMBOLS);
+    private final DecimalFormat whole = new DecimalFormat("#,##0", SYMBOLS);
+    private final DecimalFormat decimal = new DecimalFormat("#,##0.00", SYMBOLS);
+    
+    public void setSeries(String label, Series data, String indicatorName) {
+        labels.clear();
+        series.clear();
+        starts = new int[] {0};
+        this.indicatorName = indicatorName == null ? "" : indicatorName;
+        addSeries(label, data);
+    }
+    
+    public void addSeries(String label, Series data) {
+        labels.add(label);
+        series.add(data);
+        int[] grown = new int[starts.length + 1];
+        System.arraycopy(starts, 0, grown, 0, starts.length);
+        grown[starts.length] = starts[starts.length - 1] + data.size();
+        starts = grown;
+        fireTableDataChanged();
+    }
+    
+    public void clear() {
+        labels.clear();
+        series.clear();
+        starts = new int[] {0};
+        fireTableDataChanged();
+    }
+    
+    @Override
+    public int getRowCount() {
+        return starts[starts.length - 1];
+    }
+    
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+    
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+    
+    @Override
+    public Object getValueAt(int row, int column) {
+        int k = seriesForRow(row);
+        Series data = series.get(k);
+        // Newest first within each series
+        int index = data.size() - 1 - (row - starts[k]);
+        
+        switch (column) {
+            case 0:
+                return labels.get(k);
+            case 1:
+                return data.yearAt(index);
+            default:
+                return data.isMissing(index) ? "No data" : format(data.valueAt(index));
+        }
+    }
+    
+    // Last series whose first row is at or before the row
+    private int seriesForRow(int row) {
+        int low = 0;
+        int high = series.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= row) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+    
+    // Same presentation rules the text view used, without String.format
+    String format(double value) {
+        if (indicatorName.contains("GDP") && !indicatorName.contains("%")) {
+            if (value >= 1e12) {
+                return "$" + scaled.format(value / 1e12) + " trillion";
+            } else if (value >= 1e9) {
+                return "$" + scaled.format(value / 1e9) + " billion";
+            } else {
+                return money.format(value);
+            }
+        } else if (indicatorName.contains("%")) {
+            return scaled.format(value) + "%";
+        } else if (indicatorName.contains("Population")) {
+            return whole.format(value);
+        } else {
+            return decimal.format(value);
+        }
+    }
+}
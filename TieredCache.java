@@ -0,0 +1,420 @@
+// TieredCache.java
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+// Two-level cache of response bodies: an in-memory LRU in front of a
+// directory of files that survives restarts. Both tiers are bounded by bytes.
+//
+// The tiers have separate locks. memoryLock only ever guards map updates,
+// so a lookup never waits behind file I/O; diskLock serialises writes,
+// deletes and eviction scans. Reads from disk take neither: files are
+// replaced by an atomic move, so a reader sees the old file or the new one.
+public class TieredCache {
+    private static final int FILE_MAGIC = 0x57424331; // "WBC1"
+    
+    private final Path directory;
+    private final long ttlMillis;
+    private final long memoryBudgetBytes;
+    private final long diskBudgetBytes;
+    
+    private final Object memoryLock = new Object();
+    private final LinkedHashMap<String, Entry> memory;
+    private long memoryBytes;
+    private final Object diskLock = new Object();
+    private final AtomicLong diskBytes = new AtomicLong();
+    
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong staleServes = new AtomicLong();
+    
+    public TieredCache(Path directory, long ttlMillis,
+                       long memoryBudgetBytes, long diskBudgetBytes) {
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.diskBudgetBytes = diskBudgetBytes;
+        this.memory = new LinkedHashMap<>(64, 0.75f, true);
+        initializeDisk();
+    }
+    
+    // Cache under ~/.worldbank-analyser/<name> with a one week TTL
+    public static TieredCache createDefault(String name) {
+        Path dir = Paths.get(System.getProperty("user.home"),
+            ".worldbank-analyser", name);
+        return new TieredCache(dir, TimeUnit.DAYS.toMillis(7),
+            16L * 1024 * 1024, 256L * 1024 * 1024);
+    }
+    
+    private void initializeDisk() {
+        if (directory == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            long total = 0;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.bin")) {
+                for (Path file : files) {
+                    total += Files.size(file);
+                }
+            }
+            diskBytes.set(total);
+        } catch (IOException e) {
+            System.err.println("Failed to initialize cache directory: " + e.getMessage());
+        }
+    }
+    
+    // Returns the cached entry, fresh or stale, or null if the key is unknown.
+    // Only fresh entries count as hits; callers revalidate stale ones.
+    public Entry get(String key) {
+        Entry entry;
+        synchronized (memoryLock) {
+            entry = memory.get(key);
+        }
+        if (entry == null) {
+            entry = readFromDisk(key);
+            if (entry != null) {
+                putInMemory(key, entry);
+            }
+        }
+        
+        if (entry != null && isFresh(entry)) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return entry;
+    }
+    
+    public boolean isFresh(Entry entry) {
+        return System.currentTimeMillis() - entry.getStoredAt() < ttlMillis;
+    }
+    
+    public void put(String key, Entry entry) {
+        putInMemory(key, entry);
+        writeToDisk(key, entry);
+    }
+    
+    // Called after a 304 Not Modified: the body is still valid, restart its TTL
+    public Entry revalidated(String key, Entry entry) {
+        revalidations.incrementAndGet();
+        Entry refreshed = new Entry(entry.body, entry.length, entry.getEtag(),
+            entry.getLastModified(), System.currentTimeMillis());
+        put(key, refreshed);
+        return refreshed;
+    }
+    
+    // Called when the network is unavailable and an expired entry is used anyway
+    public void recordStaleServe() {
+        staleServes.incrementAndGet();
+    }
+    
+    public void invalidate(String key) {
+        synchronized (memoryLock) {
+            Entry removed = memory.remove(key);
+            if (removed != null) {
+                memoryBytes -= removed.body.length;
+            }
+        }
+        if (directory == null) {
+            return;
+        }
+        synchronized (diskLock) {
+            try {
+                Path file = fileFor(key);
+                if (Files.exists(file)) {
+                    diskBytes.addAndGet(-Files.size(file));
+                    Files.delete(file);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to invalidate cache entry: " + e.getMessage());
+            }
+        }
+    }
+    
+    // Drops every entry stored before the given time whose key matches, in
+    // both tiers. On disk the key is read from each file's header, so this
+    // scans the directory; meant for occasional bulk invalidation.
+    public int invalidateMatching(Predicate<String> matches, long storedBefore) {
+        int removed = 0;
+        synchronized (memoryLock) {
+            Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, Entry> entry = it.next();
+                if (entry.getValue().getStoredAt() < storedBefore && matches.test(entry.getKey())) {
+                    memoryBytes -= entry.getValue().body.length;
+                    it.remove();
+                    removed++;
+                }
+            }
+        }
+        if (directory == null) {
+            return removed;
+        }
+        synchronized (diskLock) {
+            return removed + invalidateOnDisk(matches, storedBefore);
+        }
+    }
+    
+    private int invalidateOnDisk(Predicate<String> matches, long storedBefore) {
+        int removed = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.bin")) {
+            for (Path file : stream) {
+                String key;
+                long storedAt;
+                try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+                    if (in.readInt() != FILE_MAGIC) {
+                        continue;
+                    }
+                    key = in.readUTF();
+                    storedAt = in.readLong();
+                } catch (IOException e) {
+                    continue;
+                }
+                if (storedAt < storedBefore && matches.test(key)) {
+                    long size = Files.size(file);
+                    Files.delete(file);
+                    diskBytes.addAndGet(-size);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to invalidate cache entries: " + e.getMessage());
+        }
+        return removed;
+    }
+    
+    private void putInMemory(String key, Entry entry) {
+        synchronized (memoryLock) {
+            Entry previous = memory.put(key, entry);
+            if (previous != null) {
+                memoryBytes -= previous.body.length;
+            }
+            memoryBytes += entry.body.length;
+            
+            // Evict least recently used entries until back under budget
+            Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+            while (memoryBytes > memoryBudgetBytes && it.hasNext()) {
+                Map.Entry<String, Entry> eldest = it.next();
+                if (eldest.getKey().equals(key)) {
+                    continue;
+                }
+                memoryBytes -= eldest.getValue().body.length;
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+    
+    private Entry readFromDisk(String key) {
+        if (directory == null) {
+            return null;
+        }
+        Path file = fileFor(key);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            if (in.readInt() != FILE_MAGIC || !in.readUTF().equals(key)) {
+                return null;
+            }
+            long storedAt = in.readLong();
+            String etag = emptyToNull(in.readUTF());
+            String lastModified = emptyToNull(in.readUTF());
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            
+            // Modification time doubles as the LRU clock for disk eviction
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Entry(body, etag, lastModified, storedAt);
+        } catch (IOException e) {
+            System.err.println("Failed to read cache entry: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    // Concurrent writers would share the temp file, so writes go one at a time
+    private void writeToDisk(String key, Entry entry) {
+        if (directory == null) {
+            return;
+        }
+        Path file = fileFor(key);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        
+        synchronized (diskLock) {
+            try {
+                long previousSize = Files.exists(file) ? Files.size(file) : 0;
+                try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(temp))) {
+                    out.writeInt(FILE_MAGIC);
+                    out.writeUTF(key);
+                    out.writeLong(entry.getStoredAt());
+                    out.writeUTF(entry.getEtag() == null ? "" : entry.getEtag());
+                    out.writeUTF(entry.getLastModified() == null ? "" : entry.getLastModified());
+                    out.writeInt(entry.length);
+                    out.write(entry.body, 0, entry.length);
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                diskBytes.addAndGet(Files.size(file) - previousSize);
+                
+                if (diskBytes.get() > diskBudgetBytes) {
+                    evictFromDisk(file);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to write cache entry: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void evictFromDisk(Path keep) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*.bin")) {
+            for (Path file : stream) {
+                if (!file.equals(keep)) {
+                    files.add(file);
+                }
+            }
+        }
+        
+        // Oldest access first
+        files.sort((a, b) -> {
+            try {
+                return Files.getLastModifiedTime(a).compareTo(Files.getLastModifiedTime(b));
+            } catch (IOException e) {
+                return 0;
+            }
+        });
+        
+        for (Path file : files) {
+            if (diskBytes.get() <= diskBudgetBytes) {
+                break;
+            }
+            long size = Files.size(file);
+            Files.deleteIfExists(file);
+            diskBytes.addAndGet(-size);
+            evictions.incrementAndGet();
+        }
+    }
+    
+    private Path fileFor(String key) {
+        return directory.resolve(sha256(key) + ".bin");
+    }
+    
+    static String sha256(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] hash = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private static String emptyToNull(String value) {
+        return value.isEmpty() ? null : value;
+    }
+    
+    public long getHits() {
+        return hits.get();
+    }
+    
+    public long getMisses() {
+        return misses.get();
+    }
+    
+    public long getEvictions() {
+        return evictions.get();
+    }
+    
+    public long getRevalidations() {
+        return revalidations.get();
+    }
+    
+    public long getStaleServes() {
+        return staleServes.get();
+    }
+    
+    public long getDiskBytes() {
+        return diskBytes.get();
+    }
+    
+    public String getStats() {
+        return String.format("hits=%d misses=%d evictions=%d revalidations=%d stale=%d disk=%dKB",
+            getHits(), getMisses(), getEvictions(), getRevalidations(),
+            getStaleServes(), getDiskBytes() / 1024);
+    }
+    
+    // The body may be the first `length` bytes of a larger buffer, so a
+    // response collected in a growable buffer is cached without a copy to
+    // trim it; the memory tier counts the whole buffer against its budget
+    public static class Entry {
+        private final byte[] body;
+        private final int length;
+        private final String etag;
+        private final String lastModified;
+        private final long storedAt;
+        
+        public Entry(byte[] body, String etag, String lastModified, long storedAt) {
+            this(body, body.length, etag, lastModified, storedAt);
+        }
+        
+        public Entry(byte[] body, int length, String etag, String lastModified, long storedAt) {
+            this.body = body;
+            this.length = length;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.storedAt = storedAt;
+        }
+        
+        // Copies only when the entry holds part of a larger buffer
+        public byte[] getBody() {
+            return length == body.length ? body : Arrays.copyOf(body, length);
+        }
+        
+        public int getLength() {
+            return length;
+        }
+        
+        public InputStream openBody() {
+            return new ByteArrayInputStream(body, 0, length);
+        }
+        
+        public String getEtag() {
+            return etag;
+        }
+        
+        public String getLastModified() {
+            return lastModified;
+        }
+        
+        public long getStoredAt() {
+            return storedAt;
+        }
+    }
+}
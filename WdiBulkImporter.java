@@ -0,0 +1,257 @@
+// WdiBulkImporter.java
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Loads the bulk WDI download (the WDI_CSV.zip archive) without unpacking
+// it. The data CSV is streamed out of the zip, cut into chunks of lines,
+// and the chunks are parsed in parallel into WorldBankData series.
+//
+// The data file has one row per country x indicator:
+//   "Country Name","Country Code","Indicator Name","Indicator Code","1960",...,"2023",
+public class WdiBulkImporter {
+    private static final int CHUNK_LINES = 2000;
+    
+    public interface Sink {
+        // Called from worker threads, so implementations must be thread safe
+        void accept(String countryCode, String indicatorCode, WorldBankData data);
+    }
+    
+    private final int threads;
+    
+    public WdiBulkImporter() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    public WdiBulkImporter(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    public Result importZip(Path zipFile, Sink sink) throws Exception {
+        try (InputStream in = Files.newInputStream(zipFile)) {
+            return importZip(in, sink);
+        }
+    }
+    
+    public Result importZip(InputStream zipStream, Sink sink) throws Exception {
+        ZipInputStream zip = new ZipInputStream(zipStream);
+        ZipEntry entry;
+        while ((entry = zip.getNextEntry()) != null) {
+            if (isDataFile(entry.getName())) {
+                return importCsv(zip, sink);
+            }
+        }
+        throw new IOException("No WDI data CSV found in archive");
+    }
+    
+    // WDIData.csv in older archives, WDICSV.csv in newer ones; skip the
+    // Country, Series and footnote metadata files
+    private static boolean isDataFile(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.endsWith("data.csv") || lower.endsWith("wdicsv.csv");
+    }
+    
+    public Result importCsv(InputStream csv, Sink sink) throws Exception {
+        long start = System.nanoTime();
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(csv, StandardCharsets.UTF_8), 1 << 16);
+        
+        String headerLine = reader.readLine();
+        if (headerLine == null) {
+            throw new IOException("Empty WDI data file");
+        }
+        int[] years = parseHeaderYears(parseCsvLine(stripBom(headerLine)));
+        
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // Caps chunks held in memory so reading cannot run far ahead of parsing
+        Semaphore outstanding = new Semaphore(threads * 2);
+        List<Future<?>> futures = new ArrayList<>();
+        AtomicLong rows = new AtomicLong();
+        AtomicLong observations = new AtomicLong();
+        
+        try {
+            List<String> chunk = new ArrayList<>(CHUNK_LINES);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                chunk.add(line);
+                if (chunk.size() == CHUNK_LINES) {
+                    futures.add(submit(executor, outstanding, chunk, years, sink, rows, observations));
+                    chunk = new ArrayList<>(CHUNK_LINES);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                futures.add(submit(executor, outstanding, chunk, years, sink, rows, observations));
+            }
+            
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        
+        return new Result(rows.get(), observations.get(), System.nanoTime() - start);
+    }
+    
+    private Future<?> submit(ExecutorService executor, Semaphore outstanding, List<String> chunk,
+                             int[] years, Sink sink, AtomicLong rows, AtomicLong observations)
+            throws InterruptedException {
+        outstanding.acquire();
+        return executor.submit(() -> {
+            try {
+                for (String line : chunk) {
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    observations.addAndGet(parseRow(line, years, sink));
+                    rows.incrementAndGet();
+                }
+            } finally {
+                outstanding.release();
+            }
+        });
+    }
+    
+    // Returns the number of non-empty values in the row
+    private static int parseRow(String line, int[] years, Sink sink) {
+        List<String> fields = parseCsvLine(line);
+        if (fields.size() < 4) {
+            return 0;
+        }
+        
+        WorldBankData data = new WorldBankData();
+        data.setCountryName(fields.get(0));
+        int values = 0;
+        
+        for (int i = 0; i < years.length; i++) {
+            int column = i + 4;
+            String field = column < fields.size() ? fields.get(column) : "";
+            if (field.isEmpty()) {
+                data.addEntry(years[i], null);
+            } else {
+                data.addEntry(years[i], Double.parseDouble(field));
+                values++;
+            }
+        }
+        
+        sink.accept(fields.get(1), fields.get(3), data);
+        return values;
+    }
+    
+    private static int[] parseHeaderYears(List<String> header) throws IOException {
+        List<Integer> years = new ArrayList<>();
+        for (int i = 4; i < header.size(); i++) {
+            String column = header.get(i).trim();
+            if (column.isEmpty()) {
+                break; // trailing comma
+            }
+            try {
+                years.add(Integer.parseInt(column));
+            } catch (NumberFormatException e) {
+                throw new IOException("Unexpected WDI header column: " + column);
+            }
+        }
+        return years.stream().mapToInt(Integer::intValue).toArray();
+    }
+    
+    // Minimal RFC 4180 field splitter; WDI rows never span lines
+    static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    private static String stripBom(String line) {
+        return line.startsWith("\uFEFF") ? line.substring(1) : line;
+    }
+    
+    public static class Result {
+        private final long rows;
+        private final long observations;
+        private final long elapsedNanos;
+        
+        Result(long rows, long observations, long elapsedNanos) {
+            this.rows = rows;
+            this.observations = observations;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        public long getRows() {
+            return rows;
+        }
+        
+        public long getObservations() {
+            return observations;
+        }
+        
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+        
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows / (elapsedNanos / 1e9);
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%,d rows (%,d values) in %.1f s, %,.0f rows/s",
+                rows, observations, elapsedNanos / 1e9, getRowsPerSecond());
+        }
+    }
+    
+    // Usage: java WdiBulkImporter WDI_CSV.zip [panel-file]
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java WdiBulkImporter <WDI_CSV.zip> [panel-file]");
+            System.exit(1);
+        }
+        
+        Path panelPath = args.length > 1 ? Paths.get(args[1]) : PanelStore.defaultPath();
+        PanelStore panel = new PanelStore(panelPath);
+        
+        Result result = new WdiBulkImporter().importZip(Paths.get(args[0]), panel::put);
+        panel.flush();
+        
+        System.out.println("Imported " + result + " into " + panelPath);
+    }
+}
@@ -0,0 +1,158 @@
+// WdiImportCheck.java
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Fixture check for WdiBulkImporter. Small WDI archives are built in memory
+// in both naming schemes (WDIData.csv in older downloads, WDICSV.csv in
+// newer ones) with the awkward parts of the real files: a BOM, quoted
+// commas, escaped quotes, empty cells and trailing commas. Metadata files
+// sit ahead of the data file, as they do in the real zip, and must be
+// skipped. Exits non-zero if any check fails.
+//
+// Run: java -cp <classpath> WdiImportCheck
+public class WdiImportCheck {
+    private static final String HEADER =
+        "\uFEFF\"Country Name\",\"Country Code\",\"Indicator Name\",\"Indicator Code\",\"2000\",\"2001\",\"2002\",";
+    
+    private static int failures;
+    
+    public static void main(String[] args) throws Exception {
+        checkOldArchive();
+        checkNewArchive();
+        checkChunkedImport();
+        checkMissingDataFile();
+        
+        if (failures > 0) {
+            System.err.println(failures + " check(s) failed");
+            System.exit(1);
+        }
+        System.out.println("All WDI import checks passed");
+    }
+    
+    // WDIData.csv with quoting edge cases
+    private static void checkOldArchive() throws Exception {
+        String csv = HEADER + "\r\n"
+            + "\"Korea, Rep.\",\"KOR\",\"GDP, PPP (current \"\"international\"\" $)\",\"NY.GDP.MKTP.PP.CD\",\"1.5\",\"\",\"2.5e3\",\r\n"
+            + "\"Arab World\",\"ARB\",\"Population, total\",\"SP.POP.TOTL\",,,,\r\n"
+            + "\"Cote d'Ivoire\",\"CIV\",\"Population, total\",\"SP.POP.TOTL\",\"100\",\"200\",\"300\",\r\n"
+            + "\r\n";
+        byte[] zip = zip(
+            "WDICountry.csv", "\"Country Code\",\"Short Name\"\n\"KOR\",\"Korea\"\n",
+            "WDISeries.csv", "\"Series Code\",\"Topic\"\n\"SP.POP.TOTL\",\"Health\"\n",
+            "WDIData.csv", csv);
+        
+        Map<String, WorldBankData> imported = new ConcurrentHashMap<>();
+        WdiBulkImporter.Result result = new WdiBulkImporter(2).importZip(
+            new ByteArrayInputStream(zip), (country, indicator, data) -> imported.put(country + "|" + indicator, data));
+        
+        check("old: rows", result.getRows() == 3, result.getRows());
+        check("old: values", result.getObservations() == 5, result.getObservations());
+        check("old: series", imported.size() == 3, imported.keySet());
+        
+        WorldBankData korea = imported.get("KOR|NY.GDP.MKTP.PP.CD");
+        check("old: quoted comma in name", korea != null && "Korea, Rep.".equals(korea.getCountryName()),
+            korea == null ? null : korea.getCountryName());
+        if (korea != null) {
+            Series series = korea.getSeries();
+            check("old: years from header", series.size() == 3, series.size());
+            check("old: 2000", Double.valueOf(1.5).equals(series.valueForYear(2000)), series.valueForYear(2000));
+            check("old: empty quoted cell", series.valueForYear(2001) == null, series.valueForYear(2001));
+            check("old: exponent", Double.valueOf(2500).equals(series.valueForYear(2002)), series.valueForYear(2002));
+        }
+        
+        WorldBankData arab = imported.get("ARB|SP.POP.TOTL");
+        check("old: all cells empty", arab != null && arab.getSeries().size() == 3
+            && arab.getSeries().valueForYear(2000) == null, arab == null ? null : arab.getSeries().size());
+        
+        WorldBankData civ = imported.get("CIV|SP.POP.TOTL");
+        check("old: apostrophe", civ != null && "Cote d'Ivoire".equals(civ.getCountryName())
+            && Double.valueOf(300).equals(civ.getSeries().valueForYear(2002)), civ == null ? null : civ.getCountryName());
+    }
+    
+    // WDICSV.csv, the name used by current downloads, with a footnote file alongside
+    private static void checkNewArchive() throws Exception {
+        String csv = HEADER + "\n"
+            + "\"Germany\",\"DEU\",\"Unemployment, total (% of total labor force) (modeled ILO estimate)\",\"SL.UEM.TOTL.ZS\",\"7.9\",\"7.8\",\"8.6\",\n";
+        byte[] zip = zip(
+            "WDIfootnote.csv", "\"CountryCode\",\"SeriesCode\",\"Year\",\"DESCRIPTION\"\n",
+            "WDICSV.csv", csv,
+            "WDICountry-Series.csv", "\"CountryCode\",\"SeriesCode\",\"DESCRIPTION\"\n");
+        
+        Map<String, WorldBankData> imported = new ConcurrentHashMap<>();
+        WdiBulkImporter.Result result = new WdiBulkImporter(1).importZip(
+            new ByteArrayInputStream(zip), (country, indicator, data) -> imported.put(country + "|" + indicator, data));
+        
+        check("new: rows", result.getRows() == 1, result.getRows());
+        check("new: values", result.getObservations() == 3, result.getObservations());
+        WorldBankData germany = imported.get("DEU|SL.UEM.TOTL.ZS");
+        check("new: series", germany != null && Double.valueOf(8.6).equals(germany.getSeries().valueForYear(2002)),
+            imported.keySet());
+    }
+    
+    // More rows than one chunk, parsed by several workers
+    private static void checkChunkedImport() throws Exception {
+        int rows = 4500;
+        StringBuilder csv = new StringBuilder(HEADER).append('\n');
+        for (int i = 0; i < rows; i++) {
+            csv.append(String.format(Locale.ROOT, "\"Country %d, Rep.\",\"C%d\",\"Indicator\",\"IND\",%d,,%d,%n",
+                i, i, i, i * 2));
+        }
+        byte[] zip = zip("WDIData.csv", csv.toString());
+        
+        Map<String, WorldBankData> imported = new ConcurrentHashMap<>();
+        WdiBulkImporter.Result result = new WdiBulkImporter(4).importZip(
+            new ByteArrayInputStream(zip), (country, indicator, data) -> imported.put(country, data));
+        
+        check("chunked: rows", result.getRows() == rows, result.getRows());
+        check("chunked: values", result.getObservations() == 2L * rows, result.getObservations());
+        check("chunked: series", imported.size() == rows, imported.size());
+        int wrong = 0;
+        for (int i = 0; i < rows; i++) {
+            WorldBankData data = imported.get("C" + i);
+            if (data == null || !Double.valueOf(i * 2).equals(data.getSeries().valueForYear(2002))
+                    || data.getSeries().valueForYear(2001) != null) {
+                wrong++;
+            }
+        }
+        check("chunked: values per row", wrong == 0, wrong + " wrong");
+    }
+    
+    private static void checkMissingDataFile() throws Exception {
+        byte[] zip = zip("WDICountry.csv", "\"Country Code\"\n", "WDISeries.csv", "\"Series Code\"\n");
+        try {
+            new WdiBulkImporter(1).importZip(new ByteArrayInputStream(zip), (country, indicator, data) -> { });
+            check("no data file", false, "no exception");
+        } catch (IOException e) {
+            check("no data file", true, e.getMessage());
+        }
+    }
+    
+    // Alternating entry names and contents
+    private static byte[] zip(String... entries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(entries[i]));
+                zip.write(entries[i + 1].getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+    
+    private static void check(String name, boolean passed, Object actual) {
+        if (passed) {
+            System.out.println("ok    " + name);
+        } else {
+            failures++;
+            System.out.println("FAIL  " + name + " (got " + actual + ")");
+        }
+    }
+}
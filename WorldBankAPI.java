@@ -1,82 +1,681 @@
 // WorldBankAPI.java
 import com.google.gson.*;
-import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
-public class WorldBankAPI {
-    private static final String BASE_URL = "https://api.worldbank.org/v2/country";
+public class WorldBankAPI implements WorldBankDataSource {
+    private static final String DEFAULT_API_ROOT = "https://api.worldbank.org/v2";
+    private static final int DEFAULT_PER_PAGE = 1000;
+    private static final int HTTP_NOT_MODIFIED = 304;
+    // Limits for the semicolon-separated batch form of the API
+    private static final int MAX_INDICATORS_PER_REQUEST = 60;
+    private static final int MAX_URL_LENGTH = 1500;
+    private static final String WDI_SOURCE = "2";
+    
     private final Gson gson;
+    // e.g. -Dworldbank.apiRoot=http://localhost:8089/v2 to replay fixtures
+    private final String apiRoot;
+    private final TieredCache cache;
+    private final SeriesStore seriesStore;
+    private final FetchEngine engine;
+    private volatile int perPage = DEFAULT_PER_PAGE;
+    
+    // Fetches currently running, so identical concurrent requests share one call
+    private final Map<String, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedRequests = new AtomicLong();
+    // Batch pairs left unfetched because their country had no rows at all
+    private final AtomicLong unansweredPairs = new AtomicLong();
     
     public WorldBankAPI() {
+        this(TieredCache.createDefault("responses"));
+    }
+    
+    public WorldBankAPI(TieredCache cache) {
+        this(cache, new FetchEngine());
+    }
+    
+    public WorldBankAPI(TieredCache cache, FetchEngine engine) {
+        this(cache, engine, System.getProperty("worldbank.apiRoot", DEFAULT_API_ROOT));
+    }
+    
+    public WorldBankAPI(TieredCache cache, FetchEngine engine, String apiRoot) {
         this.gson = new Gson();
+        this.apiRoot = apiRoot;
+        this.cache = cache;
+        this.seriesStore = new SeriesStore();
+        this.engine = engine;
+    }
+    
+    public TieredCache getCache() {
+        return cache;
+    }
+    
+    public FetchEngine getEngine() {
+        return engine;
+    }
+    
+    public SeriesStore getSeriesStore() {
+        return seriesStore;
+    }
+    
+    // Rows requested per page; larger pages mean fewer round trips
+    public void setPerPage(int perPage) {
+        if (perPage < 1) {
+            throw new IllegalArgumentException("per_page must be positive");
+        }
+        this.perPage = perPage;
+    }
+    
+    public int getPerPage() {
+        return perPage;
+    }
+    
+    public long getCoalescedRequests() {
+        return coalescedRequests.get();
     }
     
-    public WorldBankData fetchData(String countryCode, String indicator, 
+    public long getUnansweredPairs() {
+        return unansweredPairs.get();
+    }
+    
+    @Override
+    public WorldBankData fetchData(String countryCode, String indicator,
                                    int startYear, int endYear) throws Exception {
-        String urlString = String.format("%s/%s/indicator/%s?date=%d:%d&format=json",
-            BASE_URL, countryCode, indicator, startYear, endYear);
+        Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.FETCH);
+        try {
+            SeriesStore.StoredSeries stored = seriesStore.getOrCreate(countryCode, indicator);
+            
+            // Only the years we have never fetched go out to the API
+            for (int[] gap : stored.missingRanges(startYear, endYear)) {
+                String key = String.format("%s|%s|%d:%d",
+                    countryCode.toUpperCase(), indicator.toUpperCase(), gap[0], gap[1]);
+                coalesce(key, () -> stored.merge(gap[0], gap[1],
+                    fetchRange(countryCode, indicator, gap[0], gap[1])));
+            }
+            
+            return stored.slice(startYear, endYear);
+        } finally {
+            span.end(0, countryCode + "/" + indicator + " " + startYear + ":" + endYear);
+        }
+    }
+    
+    public CompletableFuture<WorldBankData> fetchDataAsync(String countryCode, String indicator,
+                                                           int startYear, int endYear) {
+        return engine.submit(() -> fetchData(countryCode, indicator, startYear, endYear));
+    }
+    
+    // Fetches every country x indicator pair for the range, packing as many
+    // as the API allows into each request with the country/A;B/indicator/X;Y
+    // form. Results are grouped by country code, then indicator.
+    public Map<String, Map<String, WorldBankData>> fetchBatch(
+            Collection<String> countryCodes, Collection<String> indicatorCodes,
+            int startYear, int endYear) throws Exception {
+        return fetchBatch(countryCodes, indicatorCodes, startYear, endYear, false);
+    }
+    
+    // Same as fetchBatch, but every pair goes back to the API (as conditional
+    // GETs where we hold a cached copy) and the new values replace the stored ones
+    public Map<String, Map<String, WorldBankData>> refreshBatch(
+            Collection<String> countryCodes, Collection<String> indicatorCodes,
+            int startYear, int endYear) throws Exception {
+        long started = System.currentTimeMillis();
+        Map<String, Map<String, WorldBankData>> results =
+            fetchBatch(countryCodes, indicatorCodes, startYear, endYear, true);
+        dropOlderPages(countryCodes, indicatorCodes, started);
+        return results;
+    }
+    
+    // Other cached responses holding a refreshed pair (the single-series pages
+    // fetchData reads, batches chunked differently) still have the old values
+    // and would be served again after a restart; drop the ones older than the refresh
+    private void dropOlderPages(Collection<String> countryCodes, Collection<String> indicatorCodes,
+                                long refreshedAt) {
+        Set<String> countries = new HashSet<>();
+        Set<String> indicatorSet = new HashSet<>();
+        for (String country : countryCodes) {
+            countries.add(country.toUpperCase());
+        }
+        for (String indicator : indicatorCodes) {
+            indicatorSet.add(indicator.toUpperCase());
+        }
+        String prefix = (apiRoot + "/country/").toUpperCase();
+        
+        cache.invalidateMatching(key -> {
+            String upper = key.toUpperCase();
+            int split = upper.indexOf("/INDICATOR/", prefix.length());
+            int query = upper.indexOf('?', split + 1);
+            if (!upper.startsWith(prefix) || split < 0 || query < 0) {
+                return false;
+            }
+            return containsAny(upper.substring(prefix.length(), split), countries)
+                && containsAny(upper.substring(split + "/INDICATOR/".length(), query), indicatorSet);
+        }, refreshedAt);
+    }
+    
+    private static boolean containsAny(String codes, Set<String> wanted) {
+        for (String code : codes.split(";")) {
+            if (wanted.contains(code)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private Map<String, Map<String, WorldBankData>> fetchBatch(
+            Collection<String> countryCodes, Collection<String> indicatorCodes,
+            int startYear, int endYear, boolean refresh) throws Exception {
+        Set<String> countries = new LinkedHashSet<>();
+        Set<String> indicatorSet = new LinkedHashSet<>();
+        
+        // Only pairs the series store cannot already answer go out
+        for (String country : countryCodes) {
+            for (String indicator : indicatorCodes) {
+                if (refresh || !seriesStore.getOrCreate(country, indicator).covers(startYear, endYear)) {
+                    countries.add(country.toUpperCase());
+                    indicatorSet.add(indicator.toUpperCase());
+                }
+            }
+        }
+        
+        List<String> indicatorList = new ArrayList<>(indicatorSet);
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        
+        for (int i = 0; i < indicatorList.size(); i += MAX_INDICATORS_PER_REQUEST) {
+            List<String> indicatorChunk = indicatorList.subList(i,
+                Math.min(i + MAX_INDICATORS_PER_REQUEST, indicatorList.size()));
+            
+            for (List<String> countryChunk : chunkCountries(
+                    countries, indicatorChunk, startYear, endYear)) {
+                requests.add(engine.submit(() -> {
+                    fetchChunk(countryChunk, indicatorChunk, startYear, endYear, refresh);
+                    return null;
+                }));
+            }
+        }
         
-        URL url = new URL(urlString);
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setRequestMethod("GET");
-        conn.setRequestProperty("Accept", "application/json");
+        joinAll(requests);
+        
+        Map<String, Map<String, WorldBankData>> results = new LinkedHashMap<>();
+        for (String country : countryCodes) {
+            Map<String, WorldBankData> byIndicator = new LinkedHashMap<>();
+            for (String indicator : indicatorCodes) {
+                byIndicator.put(indicator, seriesStore.getOrCreate(country, indicator)
+                    .slice(startYear, endYear));
+            }
+            results.put(country, byIndicator);
+        }
+        return results;
+    }
+    
+    private void fetchChunk(List<String> countryChunk, List<String> indicatorChunk,
+                            int startYear, int endYear, boolean refresh) throws Exception {
+        String url = batchUrl(countryChunk, indicatorChunk, startYear, endYear);
+        coalesce(refresh ? "refresh:" + url : url, () -> mergeChunk(countryChunk, indicatorChunk,
+            startYear, endYear, fetchAllPages(url, refresh)));
+    }
+    
+    private void mergeChunk(List<String> countryChunk, List<String> indicatorChunk,
+                            int startYear, int endYear, Map<String, WorldBankData> fetched) {
+        if (fetched == null) {
+            return;
+        }
+        
+        // Countries the response has rows for, by ISO3 code and API id
+        Set<String> answered = new HashSet<>();
+        for (String key : fetched.keySet()) {
+            answered.add(key.substring(0, key.indexOf('|')));
+        }
         
-        if (conn.getResponseCode() != 200) {
-            throw new RuntimeException("Failed : HTTP error code : " + 
-                conn.getResponseCode());
+        // A pair with no rows is marked as fetched only if the response could
+        // have held it: its country answered for another indicator, or the
+        // whole response was empty. Otherwise the code matched nothing, and
+        // caching an empty series would hide that for the rest of the session.
+        for (String country : countryChunk) {
+            for (String indicator : indicatorChunk) {
+                WorldBankData data = fetched.get(seriesKey(country, indicator));
+                if (data == null && !fetched.isEmpty() && !answered.contains(country.toUpperCase())) {
+                    unansweredPairs.incrementAndGet();
+                    continue;
+                }
+                seriesStore.getOrCreate(country, indicator).merge(startYear, endYear,
+                    data != null ? data : new WorldBankData());
+            }
         }
+    }
+    
+    // Splits countries so each URL stays under the length limit and each
+    // request's rows fit in a single page
+    private List<List<String>> chunkCountries(Collection<String> countries,
+            List<String> indicatorChunk, int startYear, int endYear) {
+        int rowsPerCountry = indicatorChunk.size() * (endYear - startYear + 1);
+        int maxCountries = Math.max(1, perPage / Math.max(1, rowsPerCountry));
+        int baseLength = batchUrl(Collections.emptyList(), indicatorChunk,
+            startYear, endYear).length();
         
-        BufferedReader br = new BufferedReader(
-            new InputStreamReader(conn.getInputStream()));
-        StringBuilder response = new StringBuilder();
-        String output;
+        List<List<String>> chunks = new ArrayList<>();
+        List<String> current = new ArrayList<>();
+        int length = baseLength;
         
-        while ((output = br.readLine()) != null) {
-            response.append(output);
+        for (String country : countries) {
+            if (!current.isEmpty() && (current.size() >= maxCountries
+                    || length + country.length() + 1 > MAX_URL_LENGTH)) {
+                chunks.add(current);
+                current = new ArrayList<>();
+                length = baseLength;
+            }
+            current.add(country);
+            length += country.length() + 1;
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
         }
-        conn.disconnect();
+        return chunks;
+    }
+    
+    private String batchUrl(List<String> countries, List<String> indicatorCodes,
+                            int startYear, int endYear) {
+        String url = String.format("%s/%s/indicator/%s?date=%d:%d&format=json&per_page=%d",
+            apiRoot + "/country", String.join(";", countries), String.join(";", indicatorCodes),
+            startYear, endYear, perPage);
         
-        return parseResponse(response.toString());
+        // Multiple indicators in one call must name their source
+        if (indicatorCodes.size() > 1) {
+            url += "&source=" + WDI_SOURCE;
+        }
+        return url;
     }
     
-    private WorldBankData parseResponse(String jsonResponse) {
-        JsonArray jsonArray = JsonParser.parseString(jsonResponse).getAsJsonArray();
+    private WorldBankData fetchRange(String countryCode, String indicator,
+                                     int startYear, int endYear) throws Exception {
+        String urlString = String.format("%s/%s/indicator/%s?date=%d:%d&format=json&per_page=%d",
+            apiRoot + "/country", countryCode, indicator, startYear, endYear, perPage);
         
-        if (jsonArray.size() < 2) {
+        Map<String, WorldBankData> series = fetchAllPages(urlString, false);
+        if (series == null) {
             return null;
         }
+        return series.isEmpty() ? new WorldBankData() : series.values().iterator().next();
+    }
+    
+    // Fetches page 1, then the remaining pages in parallel, keeping page order.
+    // Rows are grouped per country|indicator series.
+    private Map<String, WorldBankData> fetchAllPages(String urlString, boolean revalidate)
+            throws Exception {
+        Page first = fetchPage(urlString, 1, revalidate);
+        if (first == null) {
+            return null;
+        }
+        
+        Map<String, WorldBankData> series = first.series;
+        Map<String, String> countryIds = new HashMap<>(first.countryIds);
         
-        JsonArray dataArray = jsonArray.get(1).getAsJsonArray();
-        WorldBankData worldBankData = new WorldBankData();
+        if (first.pages > 1) {
+            List<CompletableFuture<Page>> remaining = new ArrayList<>();
+            for (int page = 2; page <= first.pages; page++) {
+                final int pageNumber = page;
+                remaining.add(engine.submit(() -> fetchPage(urlString, pageNumber, revalidate)));
+            }
+            
+            for (Page page : joinAll(remaining)) {
+                if (page == null) {
+                    continue;
+                }
+                countryIds.putAll(page.countryIds);
+                for (Map.Entry<String, WorldBankData> entry : page.series.entrySet()) {
+                    WorldBankData existing = series.get(entry.getKey());
+                    if (existing == null) {
+                        series.put(entry.getKey(), entry.getValue());
+                    } else {
+                        existing.addEntries(entry.getValue());
+                    }
+                }
+            }
+        }
         
-        for (JsonElement element : dataArray) {
-            JsonObject obj = element.getAsJsonObject();
+        // Rows are keyed by ISO3; add the API ids (ISO2 etc.) as extra keys
+        // for the same series, once every page has been merged
+        if (!countryIds.isEmpty()) {
+            Map<String, WorldBankData> byId = new LinkedHashMap<>();
+            for (Map.Entry<String, WorldBankData> entry : series.entrySet()) {
+                String[] parts = entry.getKey().split("\\|", 2);
+                for (Map.Entry<String, String> id : countryIds.entrySet()) {
+                    if (id.getValue().equals(parts[0])) {
+                        byId.putIfAbsent(seriesKey(id.getKey(), parts[1]), entry.getValue());
+                    }
+                }
+            }
+            byId.forEach(series::putIfAbsent);
+        }
+        return series;
+    }
+    
+    // Date the source's data was last updated (e.g. "2025-07-01"), or null
+    // if the API does not say. Source 2 is World Development Indicators.
+    public String fetchSourceLastUpdated(String sourceId) throws Exception {
+        JsonObject source = fetchMetadata(apiRoot + "/sources/" + sourceId + "?format=json");
+        if (source == null || !source.has("lastupdated") || source.get("lastupdated").isJsonNull()) {
+            return null;
+        }
+        return source.get("lastupdated").getAsString();
+    }
+    
+    // Id of the source an indicator belongs to, WDI when the API does not say
+    public String fetchIndicatorSource(String indicator) throws Exception {
+        JsonObject metadata = fetchMetadata(apiRoot + "/indicator/" + indicator + "?format=json");
+        if (metadata == null || !metadata.has("source") || !metadata.get("source").isJsonObject()) {
+            return WDI_SOURCE;
+        }
+        return metadata.getAsJsonObject("source").get("id").getAsString();
+    }
+    
+    // Every record of a paged metadata listing such as "/country" or
+    // "/indicator?source=2"
+    public List<JsonObject> fetchMetadataList(String path) throws Exception {
+        String url = apiRoot + path + (path.contains("?") ? "&" : "?")
+            + "format=json&per_page=" + perPage;
+        List<JsonObject> records = new ArrayList<>();
+        int pages = 1;
+        for (int page = 1; page <= pages; page++) {
+            JsonArray body = fetchMetadataPage(url + "&page=" + page);
+            if (body == null || body.size() < 2 || !body.get(1).isJsonArray()) {
+                break;
+            }
+            pages = body.get(0).getAsJsonObject().get("pages").getAsInt();
+            for (JsonElement record : body.get(1).getAsJsonArray()) {
+                records.add(record.getAsJsonObject());
+            }
+        }
+        return records;
+    }
+    
+    // First record of a small [meta, [records]] metadata response
+    private JsonObject fetchMetadata(String url) throws Exception {
+        JsonArray body = fetchMetadataPage(url);
+        if (body == null || body.size() < 2 || !body.get(1).isJsonArray()
+                || body.get(1).getAsJsonArray().size() == 0) {
+            return null;
+        }
+        return body.get(1).getAsJsonArray().get(0).getAsJsonObject();
+    }
+    
+    // Metadata is small and read rarely, so it is not cached
+    private JsonArray fetchMetadataPage(String url) throws Exception {
+        try (FetchEngine.Response response = engine.get(url, Collections.emptyMap())) {
+            if (response.getStatusCode() != 200) {
+                throw new WorldBankApiException(response.getStatusCode());
+            }
+            return gson.fromJson(new InputStreamReader(
+                response.getBody(), StandardCharsets.UTF_8), JsonArray.class);
+        }
+    }
+    
+    // Runs the fetch unless an identical one is already running, in which
+    // case we wait for that one. Either way the series store has the data after.
+    // If the running fetch is abandoned because its caller was cancelled, a
+    // waiter takes it over instead of failing with someone else's interrupt.
+    private void coalesce(String key, Fetch fetch) throws Exception {
+        while (true) {
+            CompletableFuture<Void> mine = new CompletableFuture<>();
+            CompletableFuture<Void> running = inFlight.putIfAbsent(key, mine);
+            if (running != null) {
+                coalescedRequests.incrementAndGet();
+                try {
+                    join(running);
+                    return;
+                } catch (FetchAbandonedException e) {
+                    continue;
+                }
+            }
             
-            String countryName = obj.getAsJsonObject("country")
-                .get("value").getAsString();
-            worldBankData.setCountryName(countryName);
+            // Leave the map before completing, so a waiter retrying can claim the key
+            try {
+                fetch.run();
+                inFlight.remove(key, mine);
+                mine.complete(null);
+                return;
+            } catch (Exception e) {
+                inFlight.remove(key, mine);
+                mine.completeExceptionally(isCancellation(e) ? new FetchAbandonedException(e) : e);
+                throw e;
+            }
+        }
+    }
+    
+    private static boolean isCancellation(Exception e) {
+        return Thread.currentThread().isInterrupted()
+            || e instanceof InterruptedException
+            || e instanceof InterruptedIOException
+            || e instanceof CancellationException;
+    }
+    
+    private interface Fetch {
+        void run() throws Exception;
+    }
+    
+    // Seen only by waiters on a coalesced fetch whose owner was cancelled
+    private static class FetchAbandonedException extends Exception {
+        private static final long serialVersionUID = 1L;
+        
+        FetchAbandonedException(Exception cause) {
+            super("Fetch abandoned by a cancelled caller", cause);
+        }
+    }
+    
+    // Unwraps the failure so callers see the original exception. Waits
+    // interruptibly, so a cancelled caller stops waiting straight away.
+    private static <T> T join(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    // If one request fails or the caller is interrupted, the rest are
+    // cancelled rather than left running with nobody waiting for them
+    private static <T> List<T> joinAll(List<CompletableFuture<T>> futures) throws Exception {
+        List<T> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<T> future : futures) {
+                results.add(join(future));
+            }
+            return results;
+        } catch (Exception e) {
+            for (CompletableFuture<T> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+    }
+    
+    private static String seriesKey(String countryCode, String indicator) {
+        return (countryCode == null ? "" : countryCode.toUpperCase()) + "|"
+            + (indicator == null ? "" : indicator.toUpperCase());
+    }
+    
+    // Serves fresh responses from the cache, revalidates stale ones with a
+    // conditional GET and falls back to stale data when the network is down.
+    // With revalidate set, even fresh entries are checked with the server.
+    private Page fetchPage(String urlString, int page, boolean revalidate) throws Exception {
+        String pageUrl = urlString + "&page=" + page;
+        TieredCache.Entry cached = cache.get(pageUrl);
+        if (!revalidate && cached != null && cache.isFresh(cached)) {
+            return parseResponse(cached);
+        }
+        
+        Map<String, String> headers = new HashMap<>();
+        if (cached != null && cached.getEtag() != null) {
+            headers.put("If-None-Match", cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            headers.put("If-Modified-Since", cached.getLastModified());
+        }
+        
+        Diagnostics.Span http = Diagnostics.start(Diagnostics.Stage.HTTP);
+        try (FetchEngine.Response response = engine.get(pageUrl, headers)) {
+            int responseCode = response.getStatusCode();
+            http.end(0, responseCode + " " + pageUrl);
+            http = null;
             
-            String year = obj.get("date").getAsString();
-            JsonElement valueElement = obj.get("value");
+            if (responseCode == HTTP_NOT_MODIFIED && cached != null) {
+                return parseResponse(cache.revalidated(pageUrl, cached));
+            }
             
-            Double value = null;
-            if (!valueElement.isJsonNull()) {
-                value = valueElement.getAsDouble();
+            if (responseCode != 200) {
+                if (cached != null) {
+                    return serveStale(cached);
+                }
+                throw new WorldBankApiException(responseCode);
             }
             
-            worldBankData.addEntry(year, value);
+            // Parse straight off the connection; the tee keeps the raw bytes for the
+            // cache and times the reads, which count as body rather than parse time.
+            // The cache entry takes over the tee's buffer as it is.
+            BodyBuffer copy = new BodyBuffer(8192);
+            TeeInputStream in = new TeeInputStream(response.getBody(), copy);
+            Page result = parseResponse(in, copy::size, in::getReadNanos);
+            in.transferTo(OutputStream.nullOutputStream());
+            Diagnostics.record(Diagnostics.Stage.BODY, in.getReadNanos(), copy.size(), pageUrl);
+            
+            cache.put(pageUrl, new TieredCache.Entry(copy.buffer(), copy.size(),
+                response.getHeader("ETag"), response.getHeader("Last-Modified"),
+                System.currentTimeMillis()));
+            return result;
+        } catch (IOException e) {
+            // Offline: keep working from whatever we have
+            if (cached != null) {
+                return serveStale(cached);
+            }
+            throw e;
+        } finally {
+            if (http != null) {
+                http.end(0, pageUrl);
+            }
+        }
+    }
+    
+    private Page serveStale(TieredCache.Entry cached) throws IOException {
+        cache.recordStaleServe();
+        return parseResponse(cached);
+    }
+    
+    private Page parseResponse(TieredCache.Entry cached) throws IOException {
+        return parseResponse(cached.openBody(), cached::getLength, () -> 0);
+    }
+    
+    // readNanos reports time spent waiting on the input, to leave out of the parse span
+    private Page parseResponse(InputStream in, LongSupplier bytesRead, LongSupplier readNanos)
+            throws IOException {
+        Map<String, WorldBankData> series = new LinkedHashMap<>();
+        Map<String, String> countryIds = new HashMap<>();
+        Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.PARSE);
+        
+        int pages;
+        try {
+            pages = WorldBankResponseParser.parse(in,
+                (countryCode, countryId, indicatorId, countryName, year, value) -> {
+                    WorldBankData worldBankData = series.computeIfAbsent(
+                        seriesKey(countryCode, indicatorId), k -> new WorldBankData());
+                    worldBankData.setCountryName(countryName);
+                    worldBankData.addEntry(year, value);
+                    if (countryId != null && !countryId.equalsIgnoreCase(countryCode)) {
+                        countryIds.putIfAbsent(countryId.toUpperCase(), countryCode.toUpperCase());
+                    }
+                });
+        } finally {
+            span.exclude(readNanos.getAsLong());
+            span.end(bytesRead.getAsLong(), series.size() + " series");
+        }
+        
+        if (pages < 0) {
+            return null;
         }
+        return new Page(pages, series, countryIds);
+    }
+    
+    private static class Page {
+        private final int pages;
+        private final Map<String, WorldBankData> series;
+        // API country id -> the ISO3 code the series are keyed by, where they differ
+        private final Map<String, String> countryIds;
         
-        // Sort by year
-        Collections.sort(worldBankData.getEntries(), 
-            (a, b) -> b.getYear().compareTo(a.getYear()));
+        Page(int pages, Map<String, WorldBankData> series, Map<String, String> countryIds) {
+            this.pages = pages;
+            this.series = series;
+            this.countryIds = countryIds;
+        }
+    }
+    
+    // Exposes the backing array so the bytes can be handed on without toByteArray()
+    private static class BodyBuffer extends ByteArrayOutputStream {
+        BodyBuffer(int size) {
+            super(size);
+        }
         
-        return worldBankData;
+        byte[] buffer() {
+            return buf;
+        }
+    }
+    
+    private static class TeeInputStream extends FilterInputStream {
+        private final OutputStream copy;
+        private long readNanos;
+        
+        TeeInputStream(InputStream in, OutputStream copy) {
+            super(in);
+            this.copy = copy;
+        }
+        
+        // Time spent inside reads of the underlying (decoded) stream
+        long getReadNanos() {
+            return readNanos;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            int b = super.read();
+            readNanos += System.nanoTime() - start;
+            if (b >= 0) {
+                copy.write(b);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = System.nanoTime();
+            int n = super.read(buffer, offset, length);
+            readNanos += System.nanoTime() - start;
+            if (n > 0) {
+                copy.write(buffer, offset, n);
+            }
+            return n;
+        }
     }
 }
-
@@ -0,0 +1,17 @@
+// WorldBankApiException.java
+
+// Thrown when the World Bank API answers with a non-200 status after retries
+public class WorldBankApiException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    private final int statusCode;
+    
+    public WorldBankApiException(int statusCode) {
+        super("Failed : HTTP error code : " + statusCode);
+        this.statusCode = statusCode;
+    }
+    
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
@@ -1,16 +1,31 @@
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 
 public class WorldBankBedrockGUI extends JFrame {
+    private static final long serialVersionUID = 1L;
+    
     private JComboBox<String> countryCombo;
     private JComboBox<String> indicatorCombo;
     private JSpinner startYearSpinner;
     private JSpinner endYearSpinner;
     private JTextField aiQuestionField;
-    private JTextArea dataTextArea;
+    private JLabel dataLabel;
+    private SeriesTableModel dataTableModel;
+    private SeriesChart dataChart;
+    private JTextArea statsTextArea;
     private JTextArea aiAnalysisTextArea;
     private JButton fetchButton;
     private JButton clearButton;
@@ -18,6 +33,15 @@ public class WorldBankBedrockGUI extends JFrame {
     
     private WorldBankAPI worldBankAPI;
     private BedrockService bedrockService;
+    private PanelStore panelStore;
+    private DeltaRefresher refresher;
+    private Catalog catalog;
+    private RequestScheduler requests;
+    private RequestScheduler.Request<WorldBankData> fetchRequest;
+    private RequestScheduler.Request<String> analysisRequest;
+    // Question to ask once the current fetch is done; the fetch itself
+    // doesn't depend on it, so asking something else joins the same fetch
+    private String fetchQuestion;
     
     private Map<String, String> countryCodes;
     private Map<String, String> indicators;
@@ -31,9 +55,25 @@ public class WorldBankBedrockGUI extends JFrame {
     private void initializeServices() {
         worldBankAPI = new WorldBankAPI();
         bedrockService = new BedrockService();
+        requests = new RequestScheduler(SwingUtilities::invokeLater);
+        
+        // Use the local panel file when one has been built
+        try {
+            if (java.nio.file.Files.exists(PanelStore.defaultPath())) {
+                panelStore = new PanelStore(PanelStore.defaultPath());
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to open panel store: " + e.getMessage());
+        }
+        
+        // Keeps fetched series and the panel current in the background
+        refresher = new DeltaRefresher(worldBankAPI);
+        refresher.setPanelStore(panelStore);
+        refresher.start(requests);
     }
     
     private void initializeData() {
+        // Common choices, offered first and used until the full catalog loads
         // Country codes
         countryCodes = new HashMap<>();
         countryCodes.put("United Kingdom", "GBR");
@@ -60,6 +100,13 @@ public class WorldBankBedrockGUI extends JFrame {
         indicators.put("Inflation, consumer prices (annual %)", "FP.CPI.TOTL.ZG");
         indicators.put("Population, total", "SP.POP.TOTL");
         indicators.put("Unemployment, total (% of labor force)", "SL.UEM.TOTL.ZS");
+        
+        // Every economy and indicator, from disk now and the API in the background
+        catalog = new Catalog(worldBankAPI, countryCodes, indicators);
+        catalog.addListener(() -> SwingUtilities.invokeLater(() -> statusLabel.setText(
+            "Catalog updated: " + catalog.getCountryCount() + " countries, "
+                + catalog.getIndicatorCount() + " indicators")));
+        catalog.refreshIfStale();
     }
     
     private void setupUI() {
@@ -119,6 +166,7 @@ public class WorldBankBedrockGUI extends JFrame {
         gbc.gridx = 1; gbc.gridy = 0;
         countryCombo = new JComboBox<>(countryCodes.keySet().toArray(new String[0]));
         countryCombo.setSelectedItem("United Kingdom");
+        installTypeAhead(countryCombo, query -> catalog.searchCountries(query, 50));
         panel.add(countryCombo, gbc);
         
         // Indicator selection
@@ -128,6 +176,7 @@ public class WorldBankBedrockGUI extends JFrame {
         gbc.gridx = 1; gbc.gridy = 1;
         indicatorCombo = new JComboBox<>(indicators.keySet().toArray(new String[0]));
         indicatorCombo.setSelectedItem("GDP (current US$)");
+        installTypeAhead(indicatorCombo, query -> catalog.searchIndicators(query, 50));
         panel.add(indicatorCombo, gbc);
         
         // Year range
@@ -168,6 +217,14 @@ public class WorldBankBedrockGUI extends JFrame {
         clearButton.addActionListener(e -> clearResults());
         buttonPanel.add(clearButton);
         
+        JButton compareButton = new JButton("Compare Countries");
+        compareButton.addActionListener(e -> compareCountries());
+        buttonPanel.add(compareButton);
+        
+        JButton diagnosticsButton = new JButton("Diagnostics");
+        diagnosticsButton.addActionListener(e -> showDiagnostics());
+        buttonPanel.add(diagnosticsButton);
+        
         panel.add(buttonPanel, gbc);
         
         return panel;
@@ -179,13 +236,27 @@ public class WorldBankBedrockGUI extends JFrame {
         
         // Data Display
         JPanel dataPanel = new JPanel(new BorderLayout());
-        dataPanel.add(new JLabel("Data:"), BorderLayout.NORTH);
-        
-        dataTextArea = new JTextArea();
-        dataTextArea.setEditable(false);
-        dataTextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
-        JScrollPane dataScrollPane = new JScrollPane(dataTextArea);
-        dataPanel.add(dataScrollPane, BorderLayout.CENTER);
+        dataLabel = new JLabel("Data:");
+        dataPanel.add(dataLabel, BorderLayout.NORTH);
+        
+        // The table only formats the rows in view, and the chart only draws
+        // one stroke per pixel column, however large the result
+        dataTableModel = new SeriesTableModel();
+        JTable dataTable = new JTable(dataTableModel);
+        dataTable.setFillsViewportHeight(true);
+        dataChart = new SeriesChart();
+        
+        JTabbedPane dataTabs = new JTabbedPane();
+        dataTabs.addTab("Table", new JScrollPane(dataTable));
+        dataTabs.addTab("Chart", dataChart);
+        dataPanel.add(dataTabs, BorderLayout.CENTER);
+        
+        // Statistics computed locally, shown as soon as the data arrives
+        statsTextArea = new JTextArea(9, 30);
+        statsTextArea.setEditable(false);
+        statsTextArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+        statsTextArea.setBorder(BorderFactory.createTitledBorder("Statistics"));
+        dataPanel.add(statsTextArea, BorderLayout.SOUTH);
         
         // AI Analysis Display
         JPanel aiPanel = new JPanel(new BorderLayout());
@@ -204,135 +275,327 @@ public class WorldBankBedrockGUI extends JFrame {
         return panel;
     }
     
+    // Makes the combo editable and narrows its list to catalog matches as the user types
+    private void installTypeAhead(JComboBox<String> combo, Function<String, List<Catalog.Entry>> search) {
+        combo.setEditable(true);
+        JTextField editor = (JTextField) combo.getEditor().getEditorComponent();
+        String[] lastQuery = {editor.getText()};
+        
+        Runnable update = () -> {
+            String query = editor.getText();
+            // Skip our own edits and picks from the popup
+            if (query.equals(lastQuery[0]) || !editor.hasFocus()
+                    || query.equals(combo.getSelectedItem())) {
+                lastQuery[0] = query;
+                return;
+            }
+            lastQuery[0] = query;
+            
+            DefaultComboBoxModel<String> model = new DefaultComboBoxModel<>();
+            for (Catalog.Entry entry : search.apply(query)) {
+                model.addElement(entry.getName());
+            }
+            int caret = editor.getCaretPosition();
+            combo.setModel(model);
+            combo.setSelectedItem(query);
+            editor.setText(query);
+            editor.setCaretPosition(Math.min(caret, query.length()));
+            if (model.getSize() > 0) {
+                combo.showPopup();
+            } else {
+                combo.hidePopup();
+            }
+        };
+        
+        // The model cannot change inside a document event, so update afterwards
+        editor.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(update);
+            }
+            
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                SwingUtilities.invokeLater(update);
+            }
+            
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+    }
+    
     private void fetchData(ActionEvent e) {
         // Get parameters
-        String country = countryCodes.get(countryCombo.getSelectedItem());
-        String indicator = indicators.get(indicatorCombo.getSelectedItem());
+        Catalog.Entry countryEntry = catalog.findCountry((String) countryCombo.getSelectedItem());
+        Catalog.Entry indicatorEntry = catalog.findIndicator((String) indicatorCombo.getSelectedItem());
+        if (countryEntry == null || indicatorEntry == null) {
+            JOptionPane.showMessageDialog(this,
+                (countryEntry == null ? "Unknown or ambiguous country" : "Unknown or ambiguous indicator")
+                    + ": pick one from the list",
+                "Invalid Input",
+                JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        countryCombo.setSelectedItem(countryEntry.getName());
+        indicatorCombo.setSelectedItem(indicatorEntry.getName());
+        String country = countryEntry.getCode();
+        String indicator = indicatorEntry.getCode();
         int startYear = (int) startYearSpinner.getValue();
         int endYear = (int) endYearSpinner.getValue();
         String aiQuestion = aiQuestionField.getText();
         
         // Validate years
         if (startYear > endYear) {
-            JOptionPane.showMessageDialog(this, 
-                "Start year must be before end year", 
-                "Invalid Input", 
+            JOptionPane.showMessageDialog(this,
+                "Start year must be before end year",
+                "Invalid Input",
                 JOptionPane.ERROR_MESSAGE);
             return;
         }
         
-        // Disable button during fetch
-        fetchButton.setEnabled(false);
+        // A new fetch supersedes the last one and, unless it asks the same
+        // question of the same data, the analysis that followed it
+        String requestKey = country + "|" + indicator + "|" + startYear + ":" + endYear;
+        String indicatorName = indicatorEntry.getName();
+        if (analysisRequest != null && !analysisRequest.getKey().equals(requestKey + "|" + aiQuestion)) {
+            requests.cancel("analyze");
+        }
         statusLabel.setText("Fetching data...");
-        
-        // Use SwingWorker for background processing
-        SwingWorker<WorldBankData, Void> worker = new SwingWorker<>() {
-            @Override
-            protected WorldBankData doInBackground() throws Exception {
-                return worldBankAPI.fetchData(country, indicator, startYear, endYear);
+        fetchQuestion = aiQuestion;
+        
+        RequestScheduler.Request<WorldBankData> request = requests.submit("fetch",
+            requestKey, RequestScheduler.Priority.INTERACTIVE, () -> {
+                WorldBankDataSource source = panelStore != null
+                    && panelStore.contains(country, indicator) ? panelStore : worldBankAPI;
+                return source.fetchData(country, indicator, startYear, endYear);
+            });
+        // Same data again while it is still being fetched: it is already wired
+        // up, and asks fetchQuestion when it finishes
+        if (request == fetchRequest) {
+            return;
+        }
+        fetchRequest = request;
+        
+        request.whenDone((data, error) -> {
+            if (error != null) {
+                JOptionPane.showMessageDialog(WorldBankBedrockGUI.this,
+                    "Error fetching data: " + error.getMessage(),
+                    "Error",
+                    JOptionPane.ERROR_MESSAGE);
+                statusLabel.setText("Error fetching data");
+                return;
             }
+            displayData(data);
             
-            @Override
-            protected void done() {
-                try {
-                    WorldBankData data = get();
-                    displayData(data);
-                    
-                    // Analyze with AI if question provided
-                    if (!aiQuestion.isEmpty() && bedrockService.isAvailable()) {
-                        analyzeWithBedrock(data, aiQuestion);
-                    } else if (!aiQuestion.isEmpty()) {
-                        aiAnalysisTextArea.setText("AWS Bedrock is not configured. " +
-                            "Please set up AWS credentials to use AI analysis.");
-                    }
-                    
-                    statusLabel.setText("Data fetched successfully");
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(WorldBankBedrockGUI.this,
-                        "Error fetching data: " + ex.getMessage(),
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE);
-                    statusLabel.setText("Error fetching data");
-                } finally {
-                    fetchButton.setEnabled(true);
-                }
+            // Analyze with AI if question provided
+            String question = fetchQuestion;
+            if (!question.isEmpty() && bedrockService.isAvailable()) {
+                analyzeWithBedrock(data, question, indicatorName, requestKey);
+            } else if (!question.isEmpty()) {
+                aiAnalysisTextArea.setText("AWS Bedrock is not configured. " +
+                    "Please set up AWS credentials to use AI analysis.");
             }
-        };
-        
-        worker.execute();
+            
+            statusLabel.setText("Data fetched successfully");
+        });
     }
     
     private void displayData(WorldBankData data) {
-        dataTextArea.setText("");
+        Diagnostics.Span span = Diagnostics.start(Diagnostics.Stage.RENDER);
+        dataTableModel.clear();
+        dataChart.setSeries(Series.empty());
+        statsTextArea.setText("");
         
         if (data == null || data.getEntries().isEmpty()) {
-            dataTextArea.setText("No data found for the specified parameters.");
+            dataLabel.setText("No data found for the specified parameters.");
+            span.end(0, "empty");
             return;
         }
         
-        // Display header
-        dataTextArea.append("Country: " + data.getCountryName() + "\n");
-        dataTextArea.append("Indicator: " + indicatorCombo.getSelectedItem() + "\n");
-        dataTextArea.append("-".repeat(50) + "\n\n");
-        
-        // Display data entries
-        for (WorldBankData.DataEntry entry : data.getEntries()) {
-            String formattedValue = formatValue(entry.getValue(), 
-                (String) indicatorCombo.getSelectedItem());
-            dataTextArea.append(entry.getYear() + ": " + formattedValue + "\n");
-        }
+        String indicatorName = (String) indicatorCombo.getSelectedItem();
+        dataLabel.setText("Data: " + data.getCountryName() + " - " + indicatorName);
+        dataTableModel.setSeries(data.getCountryName(), data.getSeries(), indicatorName);
+        dataChart.setSeries(data.getSeries());
+        statsTextArea.setText(Analytics.summarize(data.getSeries()));
+        span.end(0, data.getSeries().size() + " points");
     }
     
-    private String formatValue(Double value, String indicatorName) {
-        if (value == null) return "No data";
-        
-        if (indicatorName.contains("GDP") && !indicatorName.contains("%")) {
-            if (value >= 1e12) {
-                return String.format("$%.2f trillion", value / 1e12);
-            } else if (value >= 1e9) {
-                return String.format("$%.2f billion", value / 1e9);
-            } else {
-                return String.format("$%,.0f", value);
-            }
-        } else if (indicatorName.contains("%")) {
-            return String.format("%.2f%%", value);
-        } else if (indicatorName.contains("Population")) {
-            return String.format("%,.0f", value);
-        } else {
-            return String.format("%,.2f", value);
+    // The selected country against the common choices for the same indicator
+    // and years, in one batched fetch: rankings, correlation and regression
+    private void compareCountries() {
+        Catalog.Entry countryEntry = catalog.findCountry((String) countryCombo.getSelectedItem());
+        Catalog.Entry indicatorEntry = catalog.findIndicator((String) indicatorCombo.getSelectedItem());
+        int startYear = (int) startYearSpinner.getValue();
+        int endYear = (int) endYearSpinner.getValue();
+        if (countryEntry == null || indicatorEntry == null || startYear > endYear) {
+            JOptionPane.showMessageDialog(this,
+                "Pick a country, an indicator and a valid year range first",
+                "Invalid Input",
+                JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        
+        String country = countryEntry.getCode();
+        String indicator = indicatorEntry.getCode();
+        Set<String> countries = new LinkedHashSet<>();
+        countries.add(country);
+        countries.addAll(countryCodes.values());
+        statusLabel.setText("Fetching " + countries.size() + " countries to compare...");
+        
+        requests.submit("compare", country + "|" + indicator + "|" + startYear + ":" + endYear,
+            RequestScheduler.Priority.INTERACTIVE, () -> {
+                Map<String, Map<String, WorldBankData>> batch = worldBankAPI.fetchBatch(
+                    countries, Collections.singletonList(indicator), startYear, endYear);
+                Map<String, Series> byName = new LinkedHashMap<>();
+                String baseline = null;
+                for (String code : countries) {
+                    WorldBankData data = batch.get(code).get(indicator);
+                    String name = data.getCountryName() != null ? data.getCountryName() : code;
+                    byName.put(name, data.getSeries());
+                    if (code.equals(country)) {
+                        baseline = name;
+                    }
+                }
+                return Analytics.compare(baseline, byName);
+            }).whenDone((report, error) -> {
+                if (error != null) {
+                    statusLabel.setText("Comparison failed: " + error.getMessage());
+                    return;
+                }
+                statusLabel.setText("Comparison ready");
+                JTextArea reportArea = new JTextArea(report, 18, 80);
+                reportArea.setEditable(false);
+                reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+                JDialog dialog = new JDialog(this, indicatorEntry.getName() + ", "
+                    + startYear + "-" + endYear, false);
+                dialog.add(new JScrollPane(reportArea));
+                dialog.pack();
+                dialog.setLocationRelativeTo(this);
+                dialog.setVisible(true);
+            });
     }
     
-    private void analyzeWithBedrock(WorldBankData data, String question) {
-        statusLabel.setText("Analyzing with AI...");
-        aiAnalysisTextArea.setText("Analyzing data with AI...");
+    // Per-stage latency, bytes and allocation since startup (or the last reset),
+    // with export to JSON and an in-process JFR recording for offline profiling
+    private void showDiagnostics() {
+        JDialog dialog = new JDialog(this, "Diagnostics", false);
+        JTextArea reportArea = new JTextArea(14, 90);
+        reportArea.setEditable(false);
+        reportArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        
+        Runnable refresh = () -> reportArea.setText(Diagnostics.report()
+            + "\nCoalesced requests: " + worldBankAPI.getCoalescedRequests()
+            + "\nUnanswered batch pairs: " + worldBankAPI.getUnansweredPairs()
+            + "\nScheduler: " + requests.getStats()
+            + "\nAnalysis cache: " + bedrockService.getAnalysisCache().getStats()
+            + "\nJFR recording: " + (Diagnostics.isRecording() ? "on" : "off"));
+        
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh.run());
+        
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            Diagnostics.reset();
+            refresh.run();
+        });
         
-        SwingWorker<String, Void> worker = new SwingWorker<>() {
-            @Override
-            protected String doInBackground() throws Exception {
-                return bedrockService.analyzeData(data, question, 
-                    (String) indicatorCombo.getSelectedItem());
+        JButton exportButton = new JButton("Export...");
+        exportButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new java.io.File("diagnostics.json"));
+            if (chooser.showSaveDialog(dialog) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    Diagnostics.export(chooser.getSelectedFile().toPath());
+                } catch (Exception ex) {
+                    JOptionPane.showMessageDialog(dialog, "Export failed: " + ex.getMessage());
+                }
             }
-            
-            @Override
-            protected void done() {
+        });
+        
+        JButton recordButton = new JButton(Diagnostics.isRecording() ? "Stop JFR..." : "Start JFR");
+        recordButton.addActionListener(e -> {
+            if (!Diagnostics.isRecording()) {
+                Diagnostics.startRecording();
+                recordButton.setText("Stop JFR...");
+                refresh.run();
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            chooser.setSelectedFile(new java.io.File("worldbank-analyser.jfr"));
+            if (chooser.showSaveDialog(dialog) == JFileChooser.APPROVE_OPTION) {
                 try {
-                    String analysis = get();
-                    aiAnalysisTextArea.setText(analysis);
-                    statusLabel.setText("Analysis complete");
+                    Diagnostics.stopRecording(chooser.getSelectedFile().toPath());
+                    recordButton.setText("Start JFR");
                 } catch (Exception ex) {
-                    aiAnalysisTextArea.setText("Error during AI analysis: " + 
-                        ex.getMessage());
-                    statusLabel.setText("AI analysis failed");
+                    JOptionPane.showMessageDialog(dialog, "Recording failed: " + ex.getMessage());
                 }
+                refresh.run();
             }
-        };
+        });
+        
+        JPanel buttons = new JPanel();
+        buttons.add(refreshButton);
+        buttons.add(resetButton);
+        buttons.add(exportButton);
+        buttons.add(recordButton);
+        
+        dialog.add(new JScrollPane(reportArea), BorderLayout.CENTER);
+        dialog.add(buttons, BorderLayout.SOUTH);
+        refresh.run();
+        dialog.pack();
+        dialog.setLocationRelativeTo(this);
+        dialog.setVisible(true);
+    }
+    
+    private void analyzeWithBedrock(WorldBankData data, String question, String indicatorName,
+                                    String requestKey) {
+        // Tokens arrive on an SDK thread and are appended on the EDT while
+        // this is still the current analysis
+        AtomicReference<RequestScheduler.Request<String>> self = new AtomicReference<>();
+        AtomicBoolean receivedText = new AtomicBoolean();
+        RequestScheduler.Request<String> request = requests.submitAsync("analyze",
+            requestKey + "|" + question, RequestScheduler.Priority.INTERACTIVE,
+            () -> bedrockService.analyzeDataStreaming(data, question, indicatorName,
+                token -> SwingUtilities.invokeLater(() -> {
+                    if (!self.get().isCurrent()) {
+                        return;
+                    }
+                    if (!receivedText.getAndSet(true)) {
+                        aiAnalysisTextArea.setText("");
+                    }
+                    aiAnalysisTextArea.append(token);
+                })));
+        self.set(request);
+        // Joined the analysis already running for this question; leave its text alone
+        if (request == analysisRequest) {
+            return;
+        }
+        analysisRequest = request;
+        
+        PromptBuilder.Prompt prompt = bedrockService.preparePrompt(data, question, indicatorName);
+        statusLabel.setText("Analyzing with AI (" + prompt + ")...");
+        aiAnalysisTextArea.setText("Analyzing data with AI...");
         
-        worker.execute();
+        request.whenDone((analysis, error) -> {
+            if (error != null) {
+                aiAnalysisTextArea.setText("Error during AI analysis: " + error.getMessage());
+                statusLabel.setText("AI analysis failed");
+                return;
+            }
+            aiAnalysisTextArea.setText(analysis);
+            statusLabel.setText("Analysis complete (cache: " +
+                bedrockService.getAnalysisCache().getStats() + ")");
+        });
     }
     
     private void clearResults() {
-        dataTextArea.setText("");
+        requests.cancel("fetch");
+        requests.cancel("analyze");
+        dataLabel.setText("Data:");
+        dataTableModel.clear();
+        dataChart.setSeries(Series.empty());
+        statsTextArea.setText("");
         aiAnalysisTextArea.setText("");
         aiQuestionField.setText("");
         statusLabel.setText("Ready");
@@ -0,0 +1,388 @@
+// WorldBankCli.java
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Headless batch mode: reads a job file, fetches every series through the
+// same WorldBankAPI the GUI uses, optionally asks Bedrock each job's
+// question, and streams one record per job as CSV or JSON Lines.
+//
+// Job file, one job per line ('#' starts a comment). Countries and
+// indicators may list several codes separated by ';' to expand to every
+// combination; the question is optional:
+//   GBR;USA,NY.GDP.MKTP.CD;SP.POP.TOTL,2000,2023,How has this changed?
+//
+// --parallel caps both the batches fetched and the analyses run at once.
+//
+// Usage: java WorldBankCli <job-file> [--format csv|jsonl] [--output file]
+//                          [--parallel n] [--no-ai] [--observations]
+//                          [--diagnostics file]
+public class WorldBankCli {
+    private static final String[] SUMMARY_COLUMNS = {"country", "countryName", "indicator",
+        "startYear", "endYear", "observations", "latestYear", "latestValue", "cagr", "analysis", "error"};
+    private static final String[] OBSERVATION_COLUMNS = {"country", "countryName", "indicator",
+        "year", "value"};
+    // First year the WDI has data for
+    private static final int FIRST_YEAR = 1960;
+    
+    private final WorldBankAPI api;
+    private final BedrockService bedrock;
+    private final int parallelism;
+    private final boolean jsonLines;
+    private final boolean observations;
+    private final Writer out;
+    private final Gson gson = new Gson();
+    private final AtomicInteger failures = new AtomicInteger();
+    
+    public WorldBankCli(WorldBankAPI api, BedrockService bedrock, int parallelism,
+                        boolean jsonLines, boolean observations, Writer out) {
+        this.api = api;
+        this.bedrock = bedrock;
+        this.parallelism = Math.max(1, parallelism);
+        this.jsonLines = jsonLines;
+        this.observations = observations;
+        this.out = out;
+    }
+    
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        if (args.length < 1) {
+            System.err.println("Usage: java WorldBankCli <job-file> [--format csv|jsonl] "
+                + "[--output file] [--parallel n] [--no-ai] [--observations] [--diagnostics file]");
+            System.exit(1);
+        }
+        
+        String format = "csv";
+        String output = null;
+        int parallelism = 8;
+        boolean useAi = true;
+        boolean observations = false;
+        String diagnostics = null;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format":
+                    format = args[++i];
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--parallel":
+                    parallelism = Integer.parseInt(args[++i]);
+                    break;
+                case "--no-ai":
+                    useAi = false;
+                    break;
+                case "--observations":
+                    observations = true;
+                    break;
+                case "--diagnostics":
+                    diagnostics = args[++i];
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(1);
+            }
+        }
+        
+        List<Job> jobs;
+        try {
+            jobs = readJobs(Files.readAllLines(Paths.get(args[0]), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+            return;
+        }
+        boolean needsAi = useAi && !observations && jobs.stream().anyMatch(job -> job.question != null);
+        
+        long start = System.nanoTime();
+        try (Writer out = new BufferedWriter(output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8))) {
+            WorldBankCli cli = new WorldBankCli(new WorldBankAPI(),
+                needsAi ? new BedrockService() : null, parallelism,
+                "jsonl".equalsIgnoreCase(format), observations, out);
+            int failed = cli.run(jobs);
+            
+            System.err.printf(Locale.ROOT, "%d jobs, %d failed, %.1f s%n",
+                jobs.size(), failed, (System.nanoTime() - start) / 1e9);
+            // Stage timings for offline comparison between runs
+            if (diagnostics != null) {
+                Diagnostics.export(Paths.get(diagnostics));
+                System.err.print(Diagnostics.report());
+            }
+            if (failed > 0) {
+                out.flush();
+                System.exit(2);
+            }
+        }
+    }
+    
+    static List<Job> readJobs(List<String> lines) {
+        List<Job> jobs = new ArrayList<>();
+        for (int n = 0; n < lines.size(); n++) {
+            String line = lines.get(n).trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            List<String> fields = WdiBulkImporter.parseCsvLine(line);
+            if (fields.size() < 4) {
+                throw new IllegalArgumentException("Line " + (n + 1)
+                    + ": expected country,indicator,startYear,endYear[,question]");
+            }
+            
+            int startYear;
+            int endYear;
+            try {
+                startYear = Integer.parseInt(fields.get(2).trim());
+                endYear = Integer.parseInt(fields.get(3).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": years must be whole numbers");
+            }
+            // Checked here so a bad line fails the run before any request goes out
+            int lastYear = Year.now().getValue();
+            if (startYear < FIRST_YEAR || endYear > lastYear || startYear > endYear) {
+                throw new IllegalArgumentException("Line " + (n + 1) + ": expected "
+                    + FIRST_YEAR + " <= startYear <= endYear <= " + lastYear
+                    + ", got " + startYear + "-" + endYear);
+            }
+            String question = fields.size() > 4 && !fields.get(4).trim().isEmpty()
+                ? fields.get(4).trim() : null;
+            for (String country : fields.get(0).split(";")) {
+                for (String indicator : fields.get(1).split(";")) {
+                    jobs.add(new Job(country.trim().toUpperCase(), indicator.trim().toUpperCase(),
+                        startYear, endYear, question));
+                }
+            }
+        }
+        return jobs;
+    }
+    
+    // Returns the number of jobs that failed
+    public int run(List<Job> jobs) throws Exception {
+        writeHeader();
+        
+        // Jobs over the same years share batched requests. Within a range,
+        // countries that want the same indicators share one batch, so a
+        // batch never fetches a pair no job asked for.
+        Map<String, Set<String>> wanted = new HashMap<>();
+        for (Job job : jobs) {
+            wanted.computeIfAbsent(job.startYear + ":" + job.endYear + "|" + job.country,
+                k -> new TreeSet<>()).add(job.indicator);
+        }
+        Map<String, List<Job>> batches = new LinkedHashMap<>();
+        for (Job job : jobs) {
+            String range = job.startYear + ":" + job.endYear;
+            batches.computeIfAbsent(range + "|" + wanted.get(range + "|" + job.country),
+                k -> new ArrayList<>()).add(job);
+        }
+        
+        // At most `parallelism` batches are fetched at once
+        Semaphore permits = new Semaphore(parallelism);
+        List<CompletableFuture<List<Job>>> fetched = new ArrayList<>();
+        for (List<Job> batch : batches.values()) {
+            permits.acquire();
+            fetched.add(api.getEngine().submit(() -> {
+                try {
+                    return fetch(batch);
+                } finally {
+                    permits.release();
+                }
+            }));
+        }
+        
+        // Analyses go out in job order once every batch is in
+        List<BedrockService.AnalysisRequest> requests = new ArrayList<>();
+        List<Job> analysed = new ArrayList<>();
+        for (CompletableFuture<List<Job>> future : fetched) {
+            for (Job job : future.join()) {
+                requests.add(new BedrockService.AnalysisRequest(job.data, job.question, job.indicator));
+                analysed.add(job);
+            }
+        }
+        
+        // Each record is written as soon as its analysis finishes
+        if (!requests.isEmpty()) {
+            List<CompletableFuture<String>> results = bedrock.analyzeBatch(requests, parallelism);
+            List<CompletableFuture<Void>> written = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                Job job = analysed.get(i);
+                written.add(results.get(i).handle((analysis, error) -> {
+                    writeSummary(job, job.data, analysis, error == null ? null : error.getMessage());
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(written.toArray(new CompletableFuture<?>[0])).join();
+        }
+        
+        out.flush();
+        return failures.get();
+    }
+    
+    // Fetches one batch and writes every job that needs no analysis;
+    // returns the jobs still waiting for one
+    private List<Job> fetch(List<Job> batch) {
+        Set<String> countries = new LinkedHashSet<>();
+        Set<String> indicators = new LinkedHashSet<>();
+        for (Job job : batch) {
+            countries.add(job.country);
+            indicators.add(job.indicator);
+        }
+        
+        Map<String, Map<String, WorldBankData>> results;
+        try {
+            results = api.fetchBatch(countries, indicators, batch.get(0).startYear,
+                batch.get(0).endYear);
+        } catch (Exception e) {
+            for (Job job : batch) {
+                if (observations) {
+                    failures.incrementAndGet();
+                    System.err.println(job.country + " " + job.indicator + ": " + e.getMessage());
+                } else {
+                    writeSummary(job, null, null, e.getMessage());
+                }
+            }
+            return Collections.emptyList();
+        }
+        
+        List<Job> pending = new ArrayList<>();
+        for (Job job : batch) {
+            job.data = results.get(job.country).get(job.indicator);
+            if (observations) {
+                writeObservations(job);
+            } else if (bedrock != null && bedrock.isAvailable() && job.question != null
+                    && !job.data.getEntries().isEmpty()) {
+                pending.add(job);
+            } else {
+                writeSummary(job, job.data, null, null);
+            }
+        }
+        return pending;
+    }
+    
+    private void writeHeader() throws IOException {
+        if (!jsonLines) {
+            write(String.join(",", observations ? OBSERVATION_COLUMNS : SUMMARY_COLUMNS));
+        }
+    }
+    
+    private void writeObservations(Job job) {
+        Series series = job.data.getSeries();
+        for (int i = 0; i < series.size(); i++) {
+            writeRecord(OBSERVATION_COLUMNS, new Object[] {job.country, job.data.getCountryName(),
+                job.indicator, series.yearAt(i), series.isMissing(i) ? null : series.valueAt(i)});
+        }
+    }
+    
+    private void writeSummary(Job job, WorldBankData data, String analysis, String error) {
+        if (error != null) {
+            failures.incrementAndGet();
+        }
+        Object[] values = new Object[SUMMARY_COLUMNS.length];
+        values[0] = job.country;
+        values[2] = job.indicator;
+        values[3] = job.startYear;
+        values[4] = job.endYear;
+        if (data != null) {
+            Series series = data.getSeries();
+            values[1] = data.getCountryName();
+            values[5] = Analytics.stats(series).getCount();
+            for (int i = series.size() - 1; i >= 0; i--) {
+                if (!series.isMissing(i)) {
+                    values[6] = series.yearAt(i);
+                    values[7] = series.valueAt(i);
+                    break;
+                }
+            }
+            double cagr = Analytics.cagr(series);
+            values[8] = Double.isNaN(cagr) ? null : cagr;
+        }
+        values[9] = analysis;
+        values[10] = error;
+        writeRecord(SUMMARY_COLUMNS, values);
+    }
+    
+    private void writeRecord(String[] columns, Object[] values) {
+        String line;
+        if (jsonLines) {
+            JsonObject record = new JsonObject();
+            for (int i = 0; i < columns.length; i++) {
+                Object value = values[i];
+                if (value instanceof Number) {
+                    record.addProperty(columns[i], (Number) value);
+                } else if (value != null) {
+                    record.addProperty(columns[i], value.toString());
+                }
+            }
+            line = gson.toJson(record);
+        } else {
+            StringBuilder csv = new StringBuilder();
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                csv.append(csvField(values[i]));
+            }
+            line = csv.toString();
+        }
+        
+        try {
+            write(line);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write output", e);
+        }
+    }
+    
+    // Records may come from several threads; each line is written whole
+    private synchronized void write(String line) throws IOException {
+        out.write(line);
+        out.write('\n');
+    }
+    
+    private static String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0) {
+            return "\"" + text.replace("\"", "\"\"") + "\"";
+        }
+        return text;
+    }
+    
+    static class Job {
+        private final String country;
+        private final String indicator;
+        private final int startYear;
+        private final int endYear;
+        private final String question;
+        private WorldBankData data;
+        
+        Job(String country, String indicator, int startYear, int endYear, String question) {
+            this.country = country;
+            this.indicator = indicator;
+            this.startYear = startYear;
+            this.endYear = endYear;
+            this.question = question;
+        }
+    }
+}
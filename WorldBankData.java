@@ -1,13 +1,14 @@
 // WorldBankData.java
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 public class WorldBankData {
     private String countryName;
-    private List<DataEntry> entries;
+    private final Series.Builder builder;
+    private Series series;
     
     public WorldBankData() {
-        this.entries = new ArrayList<>();
+        this.builder = new Series.Builder();
     }
     
     public void setCountryName(String countryName) {
@@ -19,11 +20,47 @@ public class WorldBankData {
     }
     
     public void addEntry(String year, Double value) {
-        entries.add(new DataEntry(year, value));
+        addEntry(Integer.parseInt(year), value);
     }
     
+    public void addEntry(int year, Double value) {
+        if (value == null) {
+            builder.addMissing(year);
+        } else {
+            builder.add(year, value);
+        }
+        series = null;
+    }
+    
+    public void addEntries(WorldBankData other) {
+        builder.addAll(other.getSeries());
+        series = null;
+    }
+    
+    // Sorted by year, oldest first; built once and reused until the next add
+    public Series getSeries() {
+        if (series == null) {
+            series = builder.build();
+        }
+        return series;
+    }
+    
+    // Read-only view over the series, newest year first
     public List<DataEntry> getEntries() {
-        return entries;
+        Series current = getSeries();
+        return new AbstractList<DataEntry>() {
+            @Override
+            public DataEntry get(int index) {
+                int i = current.size() - 1 - index;
+                return new DataEntry(String.valueOf(current.yearAt(i)),
+                    current.isMissing(i) ? null : current.valueAt(i));
+            }
+            
+            @Override
+            public int size() {
+                return current.size();
+            }
+        };
     }
     
     public static class DataEntry {
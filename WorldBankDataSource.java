@@ -0,0 +1,8 @@
+// WorldBankDataSource.java
+
+// Anything that can answer a (country, indicator, year range) query:
+// the live API or a local panel store.
+public interface WorldBankDataSource {
+    WorldBankData fetchData(String countryCode, String indicator,
+                            int startYear, int endYear) throws Exception;
+}
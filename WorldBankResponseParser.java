@@ -0,0 +1,135 @@
+// WorldBankResponseParser.java
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+// Pull parser for the v2 JSON response shape [ {paging}, [ rows... ] ].
+// Rows are handed to the caller as they are read, so the body is never
+// materialised as a String or a JsonElement tree.
+public class WorldBankResponseParser {
+    
+    // countryCode is the ISO3 code where the row has one, countryId the
+    // API's own id (ISO2 for economies), which is what callers may have asked by
+    public interface RowHandler {
+        void onRow(String countryCode, String countryId, String indicatorId, String countryName,
+                   String year, Double value);
+    }
+    
+    // Returns the total page count, or -1 if the API answered with an
+    // error message instead of data.
+    public static int parse(InputStream in, RowHandler handler) throws IOException {
+        JsonReader reader = new JsonReader(
+            new InputStreamReader(in, StandardCharsets.UTF_8));
+        
+        reader.beginArray();
+        int pages = readPaging(reader);
+        
+        if (!reader.hasNext()) {
+            return -1;
+        }
+        
+        // An empty result comes back as [meta, null]
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return pages;
+        }
+        
+        reader.beginArray();
+        while (reader.hasNext()) {
+            readRow(reader, handler);
+        }
+        reader.endArray();
+        
+        return pages;
+    }
+    
+    private static int readPaging(JsonReader reader) throws IOException {
+        int pages = 1;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("pages")) {
+                pages = reader.nextInt();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return pages;
+    }
+    
+    private static void readRow(JsonReader reader, RowHandler handler) throws IOException {
+        String countryCode = null;
+        String countryId = null;
+        String indicatorId = null;
+        String countryName = null;
+        String year = null;
+        Double value = null;
+        
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "indicator":
+                    indicatorId = readNested(reader)[0];
+                    break;
+                case "country":
+                    String[] country = readNested(reader);
+                    countryId = country[0];
+                    countryName = country[1];
+                    break;
+                case "countryiso3code":
+                    countryCode = readOptionalString(reader);
+                    break;
+                case "date":
+                    year = reader.nextString();
+                    break;
+                case "value":
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        value = reader.nextDouble();
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        
+        // Some aggregates have an empty ISO3 code; fall back to the API's own id
+        if (countryCode == null || countryCode.isEmpty()) {
+            countryCode = countryId;
+        }
+        handler.onRow(countryCode, countryId, indicatorId, countryName, year, value);
+    }
+    
+    // Reads objects like {"id": "GB", "value": "United Kingdom"} as {id, value}
+    private static String[] readNested(JsonReader reader) throws IOException {
+        String[] idAndValue = new String[2];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    idAndValue[0] = readOptionalString(reader);
+                    break;
+                case "value":
+                    idAndValue[1] = readOptionalString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return idAndValue;
+    }
+    
+    private static String readOptionalString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
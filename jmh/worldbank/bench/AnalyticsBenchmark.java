@@ -0,0 +1,92 @@
+// AnalyticsBenchmark.java
+package worldbank.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Whole-panel sweeps, 266 countries x indicators x 64 years, through each
+// derived measure. The default indicator count keeps the panel in a small
+// heap; -p indicators=1500 runs the full WDI size.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AnalyticsBenchmark {
+    @Param({"100"})
+    public String indicators;
+    
+    private BenchmarkWorkloads workloads;
+    private Callable<Object> yoyChange;
+    private Callable<Object> cagrSweep;
+    private Callable<Object> rollingMean;
+    private Callable<Object> zScoreSweep;
+    private Callable<Object> regressionSweep;
+    private Callable<Object> rankSweep;
+    private Callable<Object> boxedYoyChange;
+    
+    @Setup
+    public void setUp() throws Exception {
+        workloads = new BenchmarkWorkloads("analytics", indicators);
+        yoyChange = workloads.get("yoy");
+        cagrSweep = workloads.get("cagr");
+        rollingMean = workloads.get("rolling-mean-5");
+        zScoreSweep = workloads.get("zscores");
+        regressionSweep = workloads.get("regression");
+        rankSweep = workloads.get("rank-2020");
+        boxedYoyChange = workloads.get("yoy.boxed-entries");
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        workloads.close();
+    }
+    
+    @Benchmark
+    public Object yoy() throws Exception {
+        return yoyChange.call();
+    }
+    
+    @Benchmark
+    public Object cagr() throws Exception {
+        return cagrSweep.call();
+    }
+    
+    @Benchmark
+    public Object rollingMean5() throws Exception {
+        return rollingMean.call();
+    }
+    
+    @Benchmark
+    public Object zScores() throws Exception {
+        return zScoreSweep.call();
+    }
+    
+    @Benchmark
+    public Object regression() throws Exception {
+        return regressionSweep.call();
+    }
+    
+    @Benchmark
+    public Object rank2020() throws Exception {
+        return rankSweep.call();
+    }
+    
+    @Benchmark
+    public Object yoyBoxedEntries() throws Exception {
+        return boxedYoyChange.call();
+    }
+}
@@ -0,0 +1,32 @@
+// BenchmarkWorkloads.java
+package worldbank.bench;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+// The workloads are built by Benchmarks.workloads() so the JMH classes and
+// the main()-driven harness measure the same code. Benchmarks is in the
+// default package, which a named package cannot import, so it is looked up
+// reflectively once per trial; the measured calls go through Callable.
+final class BenchmarkWorkloads {
+    private final Map<String, Callable<Object>> operations;
+    
+    @SuppressWarnings("unchecked")
+    BenchmarkWorkloads(String group, String param) throws Exception {
+        Method factory = Class.forName("Benchmarks").getMethod("workloads", String.class, String.class);
+        this.operations = (Map<String, Callable<Object>>) factory.invoke(null, group, param);
+    }
+    
+    Callable<Object> get(String name) {
+        Callable<Object> operation = operations.get(name);
+        if (operation == null) {
+            throw new IllegalArgumentException("No workload named " + name + " in " + operations.keySet());
+        }
+        return operation;
+    }
+    
+    void close() throws Exception {
+        ((AutoCloseable) operations).close();
+    }
+}
@@ -0,0 +1,65 @@
+// FetchBenchmark.java
+package worldbank.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// End to end through WorldBankAPI against a local FixtureServer with
+// latencyMs of simulated network latency per response. "cold" uses a fresh
+// API and cache per call; "warm" reuses one API, so repeats are served
+// from the series store. -Dbench.fixtures=<dir> replays recorded responses.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FetchBenchmark {
+    @Param({"20"})
+    public String latencyMs;
+    
+    private BenchmarkWorkloads workloads;
+    private Callable<Object> coldSingle;
+    private Callable<Object> coldBatch;
+    private Callable<Object> warmBatch;
+    
+    @Setup
+    public void setUp() throws Exception {
+        workloads = new BenchmarkWorkloads("fetch", latencyMs);
+        coldSingle = workloads.get("single.cold");
+        coldBatch = workloads.get("batch-20x5.cold");
+        warmBatch = workloads.get("batch-20x5.warm");
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        workloads.close();
+    }
+    
+    @Benchmark
+    public Object singleCold() throws Exception {
+        return coldSingle.call();
+    }
+    
+    @Benchmark
+    public Object batchCold() throws Exception {
+        return coldBatch.call();
+    }
+    
+    @Benchmark
+    public Object batchWarm() throws Exception {
+        return warmBatch.call();
+    }
+}
@@ -0,0 +1,92 @@
+// PaintBenchmark.java
+package worldbank.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Off-screen paint of the results view: the old append-per-row text area
+// versus the table and chart. The text area is only run up to 50k rows,
+// as in the harness, so it has its own state with a shorter row list.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PaintBenchmark {
+    
+    @State(Scope.Benchmark)
+    public static class Views {
+        @Param({"1000", "50000", "1000000"})
+        public String rows;
+        
+        private BenchmarkWorkloads workloads;
+        private Callable<Object> table;
+        private Callable<Object> decimatedChart;
+        private Callable<Object> polylineChart;
+        
+        @Setup
+        public void setUp() throws Exception {
+            workloads = new BenchmarkWorkloads("paint", rows);
+            table = workloads.get("table.fill+paint");
+            decimatedChart = workloads.get("chart.decimated");
+            polylineChart = workloads.get("chart.polyline");
+        }
+        
+        @TearDown
+        public void tearDown() throws Exception {
+            workloads.close();
+        }
+    }
+    
+    @State(Scope.Benchmark)
+    public static class TextViews {
+        @Param({"1000", "50000"})
+        public String rows;
+        
+        private BenchmarkWorkloads workloads;
+        private Callable<Object> textArea;
+        
+        @Setup
+        public void setUp() throws Exception {
+            workloads = new BenchmarkWorkloads("paint", rows);
+            textArea = workloads.get("textarea.fill+paint");
+        }
+        
+        @TearDown
+        public void tearDown() throws Exception {
+            workloads.close();
+        }
+    }
+    
+    @Benchmark
+    public Object textAreaFillAndPaint(TextViews views) throws Exception {
+        return views.textArea.call();
+    }
+    
+    @Benchmark
+    public Object tableFillAndPaint(Views views) throws Exception {
+        return views.table.call();
+    }
+    
+    @Benchmark
+    public Object chartDecimated(Views views) throws Exception {
+        return views.decimatedChart.call();
+    }
+    
+    @Benchmark
+    public Object chartPolyline(Views views) throws Exception {
+        return views.polylineChart.call();
+    }
+}
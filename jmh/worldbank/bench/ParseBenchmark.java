@@ -0,0 +1,55 @@
+// ParseBenchmark.java
+package worldbank.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// DOM parse of the whole body versus the streaming parser
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ParseBenchmark {
+    @Param({"50", "1000", "20000"})
+    public String rows;
+    
+    private BenchmarkWorkloads workloads;
+    private Callable<Object> domParse;
+    private Callable<Object> streamingParse;
+    
+    @Setup
+    public void setUp() throws Exception {
+        workloads = new BenchmarkWorkloads("parse", rows);
+        domParse = workloads.get("dom");
+        streamingParse = workloads.get("streaming");
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        workloads.close();
+    }
+    
+    @Benchmark
+    public Object dom() throws Exception {
+        return domParse.call();
+    }
+    
+    @Benchmark
+    public Object streaming() throws Exception {
+        return streamingParse.call();
+    }
+}
@@ -0,0 +1,56 @@
+// PromptBenchmark.java
+package worldbank.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Prompt assembly: the original one-line-per-entry prompt versus the
+// token-budgeted PromptBuilder
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PromptBenchmark {
+    @Param({"20", "64", "5000"})
+    public String years;
+    
+    private BenchmarkWorkloads workloads;
+    private Callable<Object> legacyPrompt;
+    private Callable<Object> builtPrompt;
+    
+    @Setup
+    public void setUp() throws Exception {
+        workloads = new BenchmarkWorkloads("prompt", years);
+        legacyPrompt = workloads.get("legacy");
+        builtPrompt = workloads.get("builder");
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        workloads.close();
+    }
+    
+    @Benchmark
+    public Object legacy() throws Exception {
+        return legacyPrompt.call();
+    }
+    
+    @Benchmark
+    public Object builder() throws Exception {
+        return builtPrompt.call();
+    }
+}
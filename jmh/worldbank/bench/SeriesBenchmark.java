@@ -0,0 +1,66 @@
+// SeriesBenchmark.java
+package worldbank.bench;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Boxed List<DataEntry> with String years versus the primitive Series.
+// Retained heap for a bulk panel is still reported by the harness only.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SeriesBenchmark {
+    private BenchmarkWorkloads workloads;
+    private Callable<Object> boxedBuild;
+    private Callable<Object> columnarBuild;
+    private Callable<Object> boxedScan;
+    private Callable<Object> binarySearch;
+    
+    @Setup
+    public void setUp() throws Exception {
+        workloads = new BenchmarkWorkloads("series", "");
+        boxedBuild = workloads.get("build.boxed");
+        columnarBuild = workloads.get("build.columnar");
+        boxedScan = workloads.get("lookup.boxed-scan");
+        binarySearch = workloads.get("lookup.binary-search");
+    }
+    
+    @TearDown
+    public void tearDown() throws Exception {
+        workloads.close();
+    }
+    
+    @Benchmark
+    public Object buildBoxed() throws Exception {
+        return boxedBuild.call();
+    }
+    
+    @Benchmark
+    public Object buildColumnar() throws Exception {
+        return columnarBuild.call();
+    }
+    
+    @Benchmark
+    public Object lookupBoxedScan() throws Exception {
+        return boxedScan.call();
+    }
+    
+    @Benchmark
+    public Object lookupBinarySearch() throws Exception {
+        return binarySearch.call();
+    }
+}